@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Decides, before each canvas call of a frame, whether the call would have any visible
+ * effect. Draws with a fully transparent paint, draws of empty runs of text and draws
+ * that fall completely outside the clip of the canvas (e.g. when the indicator is
+ * partially scrolled out of a list) are dropped and counted.
+ */
+final class DrawCuller {
+    private int mFrameCulled;
+    private long mTotalCulled;
+
+    /**
+     * Must be called at the start of every frame
+     */
+    void beginFrame() {
+        mFrameCulled = 0;
+    }
+
+    /**
+     * Returns whether a draw with the given paint and bounds would be visible. If it
+     * wouldn't, it is counted as culled.
+     */
+    boolean accept(Canvas canvas, Paint paint, float left, float top, float right, float bottom) {
+        if (paint.getAlpha() == 0 || right <= left || canvas.quickReject(left, top, right, bottom, Canvas.EdgeType.AA)) {
+            cull();
+            return false;
+        }
+        return true;
+    }
+
+    boolean accept(Canvas canvas, Paint paint, Rect bounds) {
+        return accept(canvas, paint, bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+
+    /**
+     * Counts a draw which was skipped for a reason known by the caller (e.g. a page
+     * number beyond the last page)
+     */
+    void cull() {
+        ++mFrameCulled;
+        ++mTotalCulled;
+    }
+
+    int getFrameCulledCount() {
+        return mFrameCulled;
+    }
+
+    long getTotalCulledCount() {
+        return mTotalCulled;
+    }
+}
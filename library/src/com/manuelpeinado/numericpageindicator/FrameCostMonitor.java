@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+/**
+ * Measures the cost of the frames drawn by an indicator and decides whether it must
+ * switch to a cheaper way of rendering. A frame is over budget if drawing it took longer
+ * than the budget, or if it was drawn during an animation much later than the previous
+ * one (i.e. frames were dropped).
+ * <p>
+ * Quality is reduced after a few consecutive frames over budget, and restored only after
+ * many consecutive frames well within budget, so that it doesn't flicker between modes.
+ */
+final class FrameCostMonitor {
+    /** Duration of a frame at 60 fps */
+    private static final long FRAME_INTERVAL_NANOS = 16666667L;
+    /** Draws further apart than this are not part of the same animation */
+    private static final long MAX_ANIMATION_GAP_NANOS = 100000000L;
+    private static final int FRAMES_TO_REDUCE = 3;
+    private static final int FRAMES_TO_RESTORE = 60;
+
+    private long mBudgetNanos;
+    private boolean mReduced;
+    private int mFramesOverBudget;
+    private int mFramesWithinBudget;
+    private long mLastFrameStart;
+
+    FrameCostMonitor(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+    void setBudget(long budgetNanos) {
+        mBudgetNanos = budgetNanos;
+    }
+
+    long getBudget() {
+        return mBudgetNanos;
+    }
+
+    boolean isReduced() {
+        return mReduced;
+    }
+
+    /**
+     * Goes back to full quality and forgets the frames measured so far
+     */
+    void reset() {
+        mReduced = false;
+        mFramesOverBudget = mFramesWithinBudget = 0;
+        mLastFrameStart = 0;
+    }
+
+    /**
+     * Records a frame
+     *
+     * @param start Time at which drawing started, as returned by {@link System#nanoTime()}
+     * @param duration Time spent drawing
+     * @param animating Whether the frame is part of an animation, so that a long gap since
+     *  the previous frame means that frames were dropped
+     * @return Whether the quality changed
+     */
+    boolean onFrame(long start, long duration, boolean animating) {
+        final long interval = start - mLastFrameStart;
+        final boolean droppedFrames = animating && mLastFrameStart != 0 && interval < MAX_ANIMATION_GAP_NANOS
+                && interval > FRAME_INTERVAL_NANOS * 3 / 2;
+        mLastFrameStart = start;
+        if (duration > mBudgetNanos || droppedFrames) {
+            mFramesWithinBudget = 0;
+            if (!mReduced && ++mFramesOverBudget >= FRAMES_TO_REDUCE) {
+                mReduced = true;
+                mFramesOverBudget = 0;
+                return true;
+            }
+        } else {
+            mFramesOverBudget = 0;
+            // Reduced frames are cheaper, so they must be well within budget to restore quality
+            if (mReduced && duration <= mBudgetNanos / 2 && ++mFramesWithinBudget >= FRAMES_TO_RESTORE) {
+                mReduced = false;
+                mFramesWithinBudget = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+}
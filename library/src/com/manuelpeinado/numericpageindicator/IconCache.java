@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.util.LruCache;
+
+/**
+ * Process-wide cache of button icons rasterised into bitmaps. Drawing some drawables
+ * (vector or shape drawables, for example) on every frame is expensive on old devices,
+ * so every icon is rasterised once per size, density, tint color and alpha bucket and
+ * then drawn as a bitmap. Fades are applied by changing the alpha of the paint used to
+ * draw the bitmap, so they never cause a new rasterisation.
+ * <p>
+ * Entries are keyed by the constant state of the drawable, so indicators which use the
+ * same drawable resource share their bitmaps. Must be used on the UI thread.
+ */
+final class IconCache {
+    /** Icons are small, so a few hundred kilobytes are enough for many indicators */
+    private static final int MAX_BYTES = 512 * 1024;
+    /** Number of distinct alphas in which the alpha of the tint is rounded */
+    private static final int ALPHA_BUCKETS = 16;
+
+    private static final LruCache<Key, Bitmap> sBitmaps = new LruCache<Key, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(Key key, Bitmap bitmap) {
+            return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    };
+
+    private IconCache() {
+    }
+
+    /**
+     * Returns the given icon rasterised in a square bitmap of the given size, tinted
+     * with the given color. The alpha of the tint is rounded to one of a few buckets.
+     */
+    static Bitmap get(Drawable icon, int size, int tint, Resources res) {
+        final int alphaStep = 255 / (ALPHA_BUCKETS - 1);
+        final int alpha = Math.round((float) Color.alpha(tint) / alphaStep) * alphaStep;
+        final Drawable.ConstantState state = icon.getConstantState();
+        final Key key = new Key(state != null ? state : icon, size, (tint & 0xFFFFFF) | (alpha << 24),
+                res.getDisplayMetrics().densityDpi);
+        Bitmap bitmap = sBitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = rasterize(state != null ? state.newDrawable(res) : icon, size, tint, alpha);
+            sBitmaps.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Draws the icon and then tints it in the bitmap, so that the drawable itself (which
+     * may be in use elsewhere if it has no constant state) is never modified
+     */
+    private static Bitmap rasterize(Drawable icon, int size, int tint, int alpha) {
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        final Rect bounds = icon.copyBounds();
+        icon.setBounds(0, 0, size, size);
+        icon.draw(canvas);
+        icon.setBounds(bounds);
+        // Keeps the coverage of the icon, with the color and alpha of the tint
+        canvas.drawColor((tint & 0xFFFFFF) | (alpha << 24), PorterDuff.Mode.SRC_IN);
+        return bitmap;
+    }
+
+    private static final class Key {
+        private final Object mIcon;
+        private final int mSize;
+        private final int mTint;
+        private final int mDensity;
+
+        Key(Object icon, int size, int tint, int density) {
+            mIcon = icon;
+            mSize = size;
+            mTint = tint;
+            mDensity = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mIcon == other.mIcon && mSize == other.mSize && mTint == other.mTint && mDensity == other.mDensity;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mIcon);
+            result = 31 * result + mSize;
+            result = 31 * result + mTint;
+            result = 31 * result + mDensity;
+            return result;
+        }
+    }
+}
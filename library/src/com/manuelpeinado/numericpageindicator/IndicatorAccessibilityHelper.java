@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.v4.view.AccessibilityDelegateCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityEventCompat;
+import android.support.v4.view.accessibility.AccessibilityManagerCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeProviderCompat;
+import android.support.v4.view.accessibility.AccessibilityRecordCompat;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+
+/**
+ * Exposes the buttons and the text of a {@link NumericPageIndicator} to accessibility
+ * services as a tree of virtual views, in the way ExploreByTouchHelper does (which is
+ * not available in the version of the support library used by this project). It also
+ * announces page changes, throttled so that flings and scrubs don't flood the
+ * accessibility service.
+ */
+final class IndicatorAccessibilityHelper extends AccessibilityDelegateCompat {
+    static final int VIRTUAL_VIEW_START = 0;
+    static final int VIRTUAL_VIEW_PREVIOUS = 1;
+    static final int VIRTUAL_VIEW_TEXT = 2;
+    static final int VIRTUAL_VIEW_NEXT = 3;
+    static final int VIRTUAL_VIEW_END = 4;
+    static final int VIRTUAL_VIEW_COUNT = 5;
+    static final int INVALID_ID = Integer.MIN_VALUE;
+    private static final int HOST_ID = View.NO_ID;
+    /** Minimum time between two page announcements while the page is still changing */
+    private static final long ANNOUNCEMENT_INTERVAL = 500;
+    private static final String BUTTON_CLASS_NAME = "android.widget.Button";
+    private static final String TEXT_CLASS_NAME = "android.widget.TextView";
+
+    private final NumericPageIndicator mHost;
+    private final AccessibilityManager mManager;
+    private final NodeProvider mNodeProvider = new NodeProvider();
+    private final Rect mTempRect = new Rect();
+    private final int[] mTempLocation = new int[2];
+    private int mFocusedVirtualViewId = INVALID_ID;
+    private int mHoveredVirtualViewId = INVALID_ID;
+    private long mLastAnnouncementTime;
+    private boolean mAnnouncementScheduled;
+
+    IndicatorAccessibilityHelper(NumericPageIndicator host) {
+        mHost = host;
+        mManager = (AccessibilityManager) host.getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+    }
+
+    @Override
+    public AccessibilityNodeProviderCompat getAccessibilityNodeProvider(View host) {
+        return mNodeProvider;
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(View host, AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(host, event);
+        event.getText().add(mHost.getVirtualViewText(VIRTUAL_VIEW_TEXT));
+    }
+
+    /**
+     * Announces the current page. Announcements of settled pages are immediate; the
+     * others are delayed so that there is at most one every {@link #ANNOUNCEMENT_INTERVAL}
+     * milliseconds, and only the page which is current at that moment is announced.
+     *
+     * @param settled True if the page won't change any more (e.g. the pager is idle)
+     */
+    void announcePage(boolean settled) {
+        if (mManager == null || !mManager.isEnabled()) {
+            return;
+        }
+        final long delay = mLastAnnouncementTime + ANNOUNCEMENT_INTERVAL - SystemClock.uptimeMillis();
+        if (settled || delay <= 0) {
+            cancelAnnouncement();
+            mAnnouncementRunnable.run();
+        } else if (!mAnnouncementScheduled) {
+            mAnnouncementScheduled = true;
+            mHost.postDelayed(mAnnouncementRunnable, delay);
+        }
+    }
+
+    void cancelAnnouncement() {
+        mAnnouncementScheduled = false;
+        mHost.removeCallbacks(mAnnouncementRunnable);
+    }
+
+    private final Runnable mAnnouncementRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mAnnouncementScheduled = false;
+            mLastAnnouncementTime = SystemClock.uptimeMillis();
+            mHost.sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+        }
+    };
+
+    /**
+     * Moves the accessibility hover between virtual views while touch exploration is on
+     * @return true if the event was consumed
+     */
+    boolean dispatchHoverEvent(MotionEvent event) {
+        if (mManager == null || !mManager.isEnabled() || !AccessibilityManagerCompat.isTouchExplorationEnabled(mManager)) {
+            return false;
+        }
+        switch (event.getAction()) {
+        case MotionEvent.ACTION_HOVER_ENTER:
+        case MotionEvent.ACTION_HOVER_MOVE:
+            final int virtualViewId = mHost.getVirtualViewAt(event.getX(), event.getY());
+            updateHoveredVirtualView(virtualViewId);
+            return virtualViewId != INVALID_ID;
+        case MotionEvent.ACTION_HOVER_EXIT:
+            if (mHoveredVirtualViewId != INVALID_ID) {
+                updateHoveredVirtualView(INVALID_ID);
+                return true;
+            }
+            return false;
+        default:
+            return false;
+        }
+    }
+
+    private void updateHoveredVirtualView(int virtualViewId) {
+        if (virtualViewId == mHoveredVirtualViewId) {
+            return;
+        }
+        final int previous = mHoveredVirtualViewId;
+        mHoveredVirtualViewId = virtualViewId;
+        // Enter goes first so that the service doesn't think that the pointer left the view
+        sendEventForVirtualView(virtualViewId, AccessibilityEventCompat.TYPE_VIEW_HOVER_ENTER);
+        sendEventForVirtualView(previous, AccessibilityEventCompat.TYPE_VIEW_HOVER_EXIT);
+    }
+
+    private boolean sendEventForVirtualView(int virtualViewId, int eventType) {
+        if (virtualViewId == INVALID_ID || mManager == null || !mManager.isEnabled()) {
+            return false;
+        }
+        final ViewParent parent = mHost.getParent();
+        if (parent == null) {
+            return false;
+        }
+        if (virtualViewId == HOST_ID) {
+            mHost.sendAccessibilityEvent(eventType);
+            return true;
+        }
+        final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.getText().add(mHost.getVirtualViewText(virtualViewId));
+        event.setEnabled(mHost.isVirtualViewEnabled(virtualViewId));
+        event.setClassName(getClassName(virtualViewId));
+        event.setPackageName(mHost.getContext().getPackageName());
+        new AccessibilityRecordCompat(event).setSource(mHost, virtualViewId);
+        return parent.requestSendAccessibilityEvent(mHost, event);
+    }
+
+    private static String getClassName(int virtualViewId) {
+        return virtualViewId == VIRTUAL_VIEW_TEXT ? TEXT_CLASS_NAME : BUTTON_CLASS_NAME;
+    }
+
+    /**
+     * Creates the nodes of the virtual views. Nodes are obtained from the pool of the
+     * framework, which recycles them once they have been sent to the accessibility
+     * service, and are filled using scratch objects owned by the helper, so that answering
+     * a query doesn't allocate.
+     */
+    private final class NodeProvider extends AccessibilityNodeProviderCompat {
+        @Override
+        public AccessibilityNodeInfoCompat createAccessibilityNodeInfo(int virtualViewId) {
+            if (virtualViewId == HOST_ID) {
+                final AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.obtain(mHost);
+                ViewCompat.onInitializeAccessibilityNodeInfo(mHost, node);
+                for (int id = 0; id < VIRTUAL_VIEW_COUNT; ++id) {
+                    if (mHost.isVirtualViewVisible(id)) {
+                        node.addChild(mHost, id);
+                    }
+                }
+                return node;
+            }
+            final AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.obtain();
+            node.setSource(mHost, virtualViewId);
+            node.setParent(mHost);
+            node.setPackageName(mHost.getContext().getPackageName());
+            node.setClassName(getClassName(virtualViewId));
+            node.setText(mHost.getVirtualViewText(virtualViewId));
+            node.setEnabled(mHost.isVirtualViewEnabled(virtualViewId));
+            node.setVisibleToUser(mHost.isShown());
+
+            mHost.getVirtualViewBounds(virtualViewId, mTempRect);
+            node.setBoundsInParent(mTempRect);
+            mHost.getLocationOnScreen(mTempLocation);
+            mTempRect.offset(mTempLocation[0], mTempLocation[1]);
+            node.setBoundsInScreen(mTempRect);
+
+            if (virtualViewId != VIRTUAL_VIEW_TEXT) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+            if (virtualViewId == mFocusedVirtualViewId) {
+                node.setAccessibilityFocused(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+            } else {
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_ACCESSIBILITY_FOCUS);
+            }
+            return node;
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == HOST_ID) {
+                return ViewCompat.performAccessibilityAction(mHost, action, arguments);
+            }
+            switch (action) {
+            case AccessibilityNodeInfoCompat.ACTION_ACCESSIBILITY_FOCUS:
+                if (mFocusedVirtualViewId == virtualViewId) {
+                    return false;
+                }
+                mFocusedVirtualViewId = virtualViewId;
+                mHost.invalidate();
+                sendEventForVirtualView(virtualViewId, AccessibilityEventCompat.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                return true;
+            case AccessibilityNodeInfoCompat.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                if (mFocusedVirtualViewId != virtualViewId) {
+                    return false;
+                }
+                mFocusedVirtualViewId = INVALID_ID;
+                mHost.invalidate();
+                sendEventForVirtualView(virtualViewId, AccessibilityEventCompat.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                return true;
+            case AccessibilityNodeInfoCompat.ACTION_CLICK:
+                if (!mHost.performVirtualViewClick(virtualViewId)) {
+                    return false;
+                }
+                sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+            default:
+                return false;
+            }
+        }
+    }
+}
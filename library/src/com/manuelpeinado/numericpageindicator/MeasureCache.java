@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Process-wide cache of text measurements, shared by all the indicators. Indicators that
+ * are recreated after a configuration change (or that are recycled in a list) usually
+ * have the same style as the previous ones, so their labels and digits don't need to be
+ * measured again.
+ * <p>
+ * Entries are keyed by the text and by the properties of the paint that affect its width.
+ * Lookups don't allocate: a single key instance is reused while holding the lock.
+ */
+final class MeasureCache {
+    private static final int MAX_SIZE = 128;
+    private static final Map<Key, Float> sWidths = new LinkedHashMap<Key, Float>(MAX_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    private static final Key sLookupKey = new Key();
+
+    private MeasureCache() {
+    }
+
+    /**
+     * Returns the width of the given text, as returned by {@link Paint#measureText(String)}
+     */
+    static float measureText(Paint paint, String text) {
+        synchronized (sWidths) {
+            sLookupKey.set(paint, text, '\0');
+            final Float width = sWidths.get(sLookupKey);
+            if (width != null) {
+                return width;
+            }
+        }
+        final float width = paint.measureText(text);
+        put(paint, text, '\0', width);
+        return width;
+    }
+
+    /**
+     * Returns the width of the widest of the ten digits starting at the given zero digit
+     *
+     * @param digits Scratch buffer of at least 10 characters
+     * @param digitWidths Scratch buffer of at least 10 floats
+     */
+    static float measureMaxDigitWidth(Paint paint, char zeroDigit, char[] digits, float[] digitWidths) {
+        synchronized (sWidths) {
+            sLookupKey.set(paint, null, zeroDigit);
+            final Float width = sWidths.get(sLookupKey);
+            if (width != null) {
+                return width;
+            }
+        }
+        final float result = measureMaxDigitWidthUncached(paint, zeroDigit, digits, digitWidths);
+        put(paint, null, zeroDigit, result);
+        return result;
+    }
+
+    /**
+     * Same as {@link #measureMaxDigitWidth(Paint, char, char[], float[])}, but bypasses
+     * the cache
+     */
+    static float measureMaxDigitWidthUncached(Paint paint, char zeroDigit, char[] digits, float[] digitWidths) {
+        for (int i = 0; i < 10; ++i) {
+            digits[i] = (char) (zeroDigit + i);
+        }
+        paint.getTextWidths(digits, 0, 10, digitWidths);
+        float result = 0;
+        for (int i = 0; i < 10; ++i) {
+            result = Math.max(result, digitWidths[i]);
+        }
+        return result;
+    }
+
+    private static void put(Paint paint, String text, char zeroDigit, float width) {
+        final Key key = new Key();
+        key.set(paint, text, zeroDigit);
+        synchronized (sWidths) {
+            sWidths.put(key, width);
+        }
+    }
+
+    private static final class Key {
+        private float mTextSize;
+        private float mTextScaleX;
+        private boolean mFakeBold;
+        /** Compared by identity: typefaces are usually process-wide singletons */
+        private Typeface mTypeface;
+        private String mText;
+        private char mZeroDigit;
+
+        void set(Paint paint, String text, char zeroDigit) {
+            mTextSize = paint.getTextSize();
+            mTextScaleX = paint.getTextScaleX();
+            mFakeBold = paint.isFakeBoldText();
+            mTypeface = paint.getTypeface();
+            mText = text;
+            mZeroDigit = zeroDigit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mTextSize == other.mTextSize && mTextScaleX == other.mTextScaleX && mFakeBold == other.mFakeBold
+                    && mTypeface == other.mTypeface && mZeroDigit == other.mZeroDigit
+                    && (mText == null ? other.mText == null : mText.equals(other.mText));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(mTextSize);
+            result = 31 * result + Float.floatToIntBits(mTextScaleX);
+            result = 31 * result + (mFakeBold ? 1 : 0);
+            result = 31 * result + System.identityHashCode(mTypeface);
+            result = 31 * result + (mText == null ? 0 : mText.hashCode());
+            result = 31 * result + mZeroDigit;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.util.Arrays;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/**
+ * Strip which shows the whole document at a glance: the pages which have been visited,
+ * the bookmarked pages and the current position.
+ * <p>
+ * Visited pages are kept in a bitset, so that even documents with hundreds of thousands
+ * of pages only need a few kilobytes. Documents with more than {@link #MAX_TRACKED_PAGES}
+ * pages (e.g. endless carousels) don't track visited pages at all. Bookmarks are few, so
+ * they are kept in a sorted array of pages. The strip is pre-rendered
+ * into a bitmap one pixel high and as wide as the indicator, in which every column
+ * stands for a bucket of consecutive pages. Visiting a page only repaints the columns
+ * of its bucket, and drawing the strip is a single bitmap blit whatever the number of
+ * pages.
+ */
+final class Minimap {
+    private static final long[] EMPTY = new long[0];
+    private static final int[] NO_BOOKMARKS = new int[0];
+    /** Above this page count the visited bitset would take more than 2 MB */
+    static final int MAX_TRACKED_PAGES = 1 << 24;
+
+    private long[] mVisited = EMPTY;
+    private int[] mBookmarks = NO_BOOKMARKS;
+    private int mPageCount;
+    private int mTrackColor;
+    private int mVisitedColor;
+    private int mBookmarkColor;
+    private Bitmap mStrip;
+    private int[] mStripPixels;
+    private boolean mStripValid;
+    private final Paint mStripPaint = new Paint();
+
+    Minimap(int trackColor, int visitedColor, int bookmarkColor) {
+        mTrackColor = trackColor;
+        mVisitedColor = visitedColor;
+        mBookmarkColor = bookmarkColor;
+        // Columns must be stretched vertically without blending them horizontally
+        mStripPaint.setFilterBitmap(false);
+    }
+
+    int getPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * Changes the number of pages. Visited pages and bookmarks within the new count are kept.
+     */
+    void setPageCount(int pageCount) {
+        if (pageCount == mPageCount) {
+            return;
+        }
+        mVisited = pageCount <= MAX_TRACKED_PAGES ? resize(mVisited, pageCount) : EMPTY;
+        mPageCount = pageCount;
+        mStripValid = false;
+    }
+
+    void setColors(int trackColor, int visitedColor, int bookmarkColor) {
+        mTrackColor = trackColor;
+        mVisitedColor = visitedColor;
+        mBookmarkColor = bookmarkColor;
+        mStripValid = false;
+    }
+
+    int getTrackColor() {
+        return mTrackColor;
+    }
+
+    int getVisitedColor() {
+        return mVisitedColor;
+    }
+
+    int getBookmarkColor() {
+        return mBookmarkColor;
+    }
+
+    boolean isVisited(int page) {
+        return page >= 0 && page < mPageCount && mVisited != EMPTY && (mVisited[page >> 6] & (1L << page)) != 0;
+    }
+
+    /**
+     * Marks the given page as visited, repainting only the columns which contain it
+     */
+    void markVisited(int page) {
+        if (page < 0 || page >= mPageCount || mVisited == EMPTY || isVisited(page)) {
+            return;
+        }
+        mVisited[page >> 6] |= 1L << page;
+        if (mStripValid) {
+            final int width = mStrip.getWidth();
+            for (int column = (int) ((long) page * width / mPageCount); column < width; ++column) {
+                final int first = getFirstPage(column, width);
+                if (first > page) {
+                    break;
+                }
+                if (page < getEndPage(column, width, first)) {
+                    mStrip.setPixel(column, 0, getColumnColor(first, getEndPage(column, width, first)));
+                }
+            }
+        }
+    }
+
+    void clearVisited() {
+        clear(mVisited);
+        mStripValid = false;
+    }
+
+    /**
+     * Replaces the bookmarked pages. Pages out of range are not drawn.
+     */
+    void setBookmarks(int[] pages) {
+        if (pages == null || pages.length == 0) {
+            mBookmarks = NO_BOOKMARKS;
+        } else {
+            mBookmarks = new int[pages.length];
+            System.arraycopy(pages, 0, mBookmarks, 0, pages.length);
+            Arrays.sort(mBookmarks);
+        }
+        mStripValid = false;
+    }
+
+    /**
+     * Draws the strip in the given bounds, plus a marker for the current page
+     */
+    void draw(Canvas canvas, RectF bounds, int currentPage, Paint markerPaint) {
+        final int width = (int) bounds.width();
+        if (width <= 0 || mPageCount == 0) {
+            return;
+        }
+        if (mStrip == null || mStrip.getWidth() != width) {
+            release();
+            mStrip = Bitmap.createBitmap(width, 1, Bitmap.Config.ARGB_8888);
+            mStripPixels = new int[width];
+        }
+        if (!mStripValid) {
+            render();
+        }
+        canvas.drawBitmap(mStrip, null, bounds, mStripPaint);
+        final float pageWidth = Math.max(1, bounds.width() / mPageCount);
+        final float markerLeft = bounds.left + (bounds.width() - pageWidth) * currentPage / Math.max(1, mPageCount - 1);
+        canvas.drawRect(markerLeft, bounds.top, markerLeft + pageWidth, bounds.bottom, markerPaint);
+    }
+
+    void release() {
+        if (mStrip != null) {
+            mStrip.recycle();
+            mStrip = null;
+            mStripPixels = null;
+        }
+        mStripValid = false;
+    }
+
+    private void render() {
+        final int width = mStrip.getWidth();
+        for (int column = 0; column < width; ++column) {
+            final int first = getFirstPage(column, width);
+            mStripPixels[column] = getColumnColor(first, getEndPage(column, width, first));
+        }
+        mStrip.setPixels(mStripPixels, 0, width, 0, 0, width, 1);
+        mStripValid = true;
+    }
+
+    private int getFirstPage(int column, int width) {
+        return (int) ((long) column * mPageCount / width);
+    }
+
+    /**
+     * Returns the page after the last one of the bucket of the given column. When there
+     * are fewer pages than columns every bucket has one page, shared by several columns.
+     */
+    private int getEndPage(int column, int width, int firstPage) {
+        return Math.max(firstPage + 1, (int) ((long) (column + 1) * mPageCount / width));
+    }
+
+    /**
+     * Bookmarked buckets use the bookmark color. Otherwise the color goes from the track
+     * color to the visited color depending on the fraction of visited pages.
+     */
+    private int getColumnColor(int first, int end) {
+        if (hasBookmark(first, end)) {
+            return mBookmarkColor;
+        }
+        if (mVisited == EMPTY) {
+            return mTrackColor;
+        }
+        final float visited = (float) countBits(mVisited, first, end) / (end - first);
+        return blend(mTrackColor, mVisitedColor, visited);
+    }
+
+    private static int blend(int from, int to, float fraction) {
+        final float inverse = 1 - fraction;
+        return Color.argb((int) (Color.alpha(from) * inverse + Color.alpha(to) * fraction),
+                (int) (Color.red(from) * inverse + Color.red(to) * fraction),
+                (int) (Color.green(from) * inverse + Color.green(to) * fraction),
+                (int) (Color.blue(from) * inverse + Color.blue(to) * fraction));
+    }
+
+    /**
+     * Returns whether any page in the range [from, to) is bookmarked
+     */
+    private boolean hasBookmark(int from, int to) {
+        final int index = Arrays.binarySearch(mBookmarks, from);
+        final int next = index >= 0 ? index : -index - 1;
+        return next < mBookmarks.length && mBookmarks[next] < to;
+    }
+
+    /**
+     * Counts the bits set in the range [from, to) of the given bitset
+     */
+    private static int countBits(long[] bits, int from, int to) {
+        int count = 0;
+        int index = from;
+        while (index < to) {
+            final int word = index >> 6;
+            final int bit = index & 63;
+            final int n = Math.min(64 - bit, to - index);
+            long mask = n == 64 ? -1L : ((1L << n) - 1) << bit;
+            count += Long.bitCount(bits[word] & mask);
+            index += n;
+        }
+        return count;
+    }
+
+    private static long[] resize(long[] bits, int pageCount) {
+        final int words = (int) (((long) pageCount + 63) >> 6);
+        final long[] result = words == bits.length ? bits : new long[words];
+        if (result != bits) {
+            System.arraycopy(bits, 0, result, 0, Math.min(words, bits.length));
+        }
+        // Clear the bits beyond the last page, so that they don't count if the document grows again
+        final int tail = pageCount & 63;
+        if (tail != 0) {
+            result[words - 1] &= (1L << tail) - 1;
+        }
+        return result;
+    }
+
+    private static void clear(long[] bits) {
+        for (int i = 0; i < bits.length; ++i) {
+            bits[i] = 0;
+        }
+    }
+}
@@ -16,22 +16,43 @@
 package com.manuelpeinado.numericpageindicator;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+
+import java.text.Bidi;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.viewpagerindicator.PageIndicator;
 
@@ -54,6 +75,7 @@ public class NumericPageIndicator extends View implements PageIndicator {
     private final Paint mPaintText = new Paint();
     private final Paint mPaintPageNumberText = new Paint();
     private final Paint mPaintButtonBackground = new Paint();
+    private final Paint mPaintFocus = new Paint();
     private int mColorText;
     private float mPaddingTop;
     private float mPaddingBottom;
@@ -67,6 +89,8 @@ public class NumericPageIndicator extends View implements PageIndicator {
     private final Rect mRectEndText = new Rect();
     private final Rect mRectStart = new Rect();
     private final Rect mRectEnd = new Rect();
+    private final RectF mRectMinimap = new RectF();
+    private final Paint mPaintMinimapMarker = new Paint();
     private boolean mPreviousDown;
     private boolean mNextDown;
     private boolean mStartDown;
@@ -75,6 +99,21 @@ public class NumericPageIndicator extends View implements PageIndicator {
     private float mWidthPreviousText;
     private float mWidthStartText;
     private float mWidthEndText;
+    private Drawable mIconStart;
+    private Drawable mIconEnd;
+    private Drawable mIconPrevious;
+    private Drawable mIconNext;
+    private Bitmap mBitmapStart;
+    private Bitmap mBitmapEnd;
+    private Bitmap mBitmapPrevious;
+    private Bitmap mBitmapNext;
+    private float mButtonIconSize;
+    private int mColorButtonIcon;
+    private boolean mHasButtonIconColor;
+    private final Paint mPaintIcon = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final DrawCuller mDrawCuller = new DrawCuller();
+    private boolean mAdaptiveQuality;
+    private final FrameCostMonitor mFrameCostMonitor = new FrameCostMonitor(DEFAULT_FRAME_BUDGET_NANOS);
     private int mColorPressedButton;
     private boolean mShowChangePageButtons;
     private boolean mShowStartEndButtons;
@@ -89,8 +128,154 @@ public class NumericPageIndicator extends View implements PageIndicator {
     private String mTextNextButton;
     private String mTextStartButton;
     private String mTextEndButton;
+    private boolean mTemplateFirstPartHasPageCount;
+    private boolean mTemplateSecondPartHasPageCount;
+    private boolean mTemplateFirstPartHasSection;
+    private boolean mTemplateSecondPartHasSection;
+    private boolean mTemplateUsesSectionPageNumber;
+    private boolean mTextRtl;
+    private final SectionIndex mSectionIndex = new SectionIndex();
+    private int mCurrentSection;
+    private int mVirtualPageCount;
+    private boolean mScrubEnabled;
+    private float mScrubStepWidth;
+    private boolean mScrubTracking;
+    private boolean mScrubbing;
+    private boolean mScrubFlinging;
+    /** A double, so that sub-page moves aren't lost with hundreds of millions of pages */
+    private double mScrubPosition;
+    private float mScrubDownX;
+    private float mScrubLastX;
+    private float mScrubFlingVelocity;
+    private long mScrubFlingLastTime;
+    private VelocityTracker mVelocityTracker;
+    private boolean mAutoRepeating;
+    private int mAutoRepeatDirection;
+    private float mAutoRepeatInterval;
+    private int mPendingTargetPage = -1;
+    private boolean mNavigationScheduled;
+    private float mPendingScrollDelta;
+    private final int mTouchSlop;
+    private final int mMinimumFlingVelocity;
+    private final int mMaximumFlingVelocity;
+    private float mWidthFirstPart;
+    private float mWidthLastPart;
+    private final PageNumberText mCurrentPageNumberText = new PageNumberText();
+    private final PageNumberText mNextPageNumberText = new PageNumberText();
+    private PageNumberTransition mPageNumberTransition;
+    private Locale mLocale;
+    private PageNumberFormat mPageNumberFormat;
+    private boolean mPageNumberGrouping;
+    private boolean mTabularDigits;
+    private float mTextSize;
+    private boolean mAutoFitTextSize;
+    private float mMinTextSize;
+    /** Width needed to display everything at the maximum text size, or -1 if not computed */
+    private float mIntrinsicWidth = -1;
+    /** Number of characters of the page count when mIntrinsicWidth was computed */
+    private int mIntrinsicPageCountLength;
+    /** Whether the last measure pass used the intrinsic width */
+    private boolean mWidthDependsOnContent;
+    /** True while the indicator can't be seen (detached, hidden or in a stopped window) */
+    private boolean mSuspended = true;
+    /**
+     * Tracked explicitly because while onDetachedFromWindow runs the view still has its
+     * parent and the window visibility it had when attached
+     */
+    private boolean mAttached;
+    private int mWindowVisibility = GONE;
+    /** Whether the text must be updated when the indicator stops being suspended */
+    private boolean mPendingTextUpdate;
+    private ThumbnailPreview mThumbnailPreview;
+    private boolean mShowMinimap;
+    private float mMinimapHeight;
+    private Minimap mMinimap;
+    private IndicatorAccessibilityHelper mAccessibilityHelper;
+    private SessionRecorder mSessionRecorder;
+    /** Text announced for the current page, rebuilt only when the page or the text change */
+    private String mAccessibilityText;
+    private int mAccessibilityTextPage = -1;
+    private String mAccessibilityTextFirstPart;
+    private String mAccessibilityTextLastPart;
+    private final char[] mDigits = new char[10];
+    private final float[] mDigitWidths = new float[10];
+    private final char[] mTabularBuffer = new char[PageNumberFormat.MAX_LENGTH];
+    private float mMaxDigitWidth = -1;
+    private boolean mTabularLayoutValid;
+    private float mTabularTextLeft;
+    private float mPageNumberBoxWidth;
+    private PageCountProvider mPageCountProvider;
+    private int mPageCountState = PAGE_COUNT_FROM_ADAPTER;
+    private int mProvidedPageCount;
+    private int mPageCountRequestId;
+    private Future<?> mPageCountRequest;
+    /** Whether a resolution was cancelled when the view was detached, to restart it when attached */
+    private boolean mPageCountRequestInterrupted;
+    private String mTextUnknownPageCount;
+    private String mTextPartialPageCountSuffix;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    /** Latest values published from any thread with the post* methods */
+    private final AtomicReference<PublishedState> mPublishedState = new AtomicReference<PublishedState>(PublishedState.EMPTY);
+    private final AtomicBoolean mPublishedStateScheduled = new AtomicBoolean();
+    /** Last published state applied on the UI thread */
+    private PublishedState mAppliedState = PublishedState.EMPTY;
     private static final String TEMPLATE_PAGE_NUMBER_PLACEHOLDER = "#i";
     private static final String TEMPLATE_PAGE_COUNT_PLACEHOLDER = "#N";
+    private static final String TEMPLATE_SECTION_NUMBER_PLACEHOLDER = "#c";
+    private static final String TEMPLATE_SECTION_PAGE_NUMBER_PLACEHOLDER = "#j";
+    private static final String TEMPLATE_SECTION_PAGE_COUNT_PLACEHOLDER = "#M";
+    private static final int PAGE_COUNT_FROM_ADAPTER = 0;
+    private static final int PAGE_COUNT_UNKNOWN = 1;
+    private static final int PAGE_COUNT_AT_LEAST = 2;
+    private static final int PAGE_COUNT_RESOLVED = 3;
+    /** Finger speed, in steps per second, at which a scrub step is worth two pages */
+    private static final float SCRUB_ACCELERATION_VELOCITY = 20;
+    /** Deceleration rate of scrub flings, in 1/s */
+    private static final float SCRUB_FLING_FRICTION = 2.5f;
+    /** Speed, in pages per second, below which a scrub fling ends */
+    private static final float SCRUB_FLING_MIN_VELOCITY = 2;
+    /** Delay between the first two auto-repeated steps of a held button, in ms */
+    private static final float AUTO_REPEAT_INITIAL_INTERVAL = 300;
+    /** Factor applied to the auto-repeat delay after every step */
+    private static final float AUTO_REPEAT_ACCELERATION = 0.85f;
+    /** Minimum delay between auto-repeated steps, in ms */
+    private static final float AUTO_REPEAT_MIN_INTERVAL = 30;
+    /** MotionEvent.AXIS_SCROLL, reported by rotary encoders (not available in our SDK version) */
+    private static final int AXIS_SCROLL = 26;
+    private static final int TRANSITION_FADE = 0;
+    private static final int TRANSITION_SLIDE = 1;
+    private static final int TRANSITION_ODOMETER = 2;
+    /** Precision of the auto-fit search, in pixels */
+    private static final float AUTO_FIT_PRECISION = 0.5f;
+    private static final int AUTO_FIT_CACHE_SIZE = 32;
+    /** Text sizes found by the auto-fit search, shared by all indicators */
+    private static final Map<String, Float> sAutoFitCache = new LinkedHashMap<String, Float>(AUTO_FIT_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+            return size() > AUTO_FIT_CACHE_SIZE;
+        }
+    };
+    /** By default thumbnails can use up to this fraction of the maximum heap size */
+    private static final int THUMBNAIL_CACHE_MEMORY_FRACTION = 32;
+    private static final int PARSED_TEMPLATE_CACHE_SIZE = 16;
+    /** Parsed templates, shared by all indicators so that recreated ones don't parse them again */
+    private static final Map<String, ParsedTemplate> sParsedTemplates = new LinkedHashMap<String, ParsedTemplate>(PARSED_TEMPLATE_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedTemplate> eldest) {
+            return size() > PARSED_TEMPLATE_CACHE_SIZE;
+        }
+    };
+    /** Default time that drawing a frame can take before adaptive quality kicks in */
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+    /**
+     * Threads are created on demand (and die when idle), so that a provider which blocks
+     * doesn't delay the page counts of other indicators
+     */
+    private static final ExecutorService sPageCountExecutor = Executors.newCachedThreadPool();
 
     public NumericPageIndicator(Context context) {
         this(context, null);
@@ -103,6 +288,10 @@ public class NumericPageIndicator extends View implements PageIndicator {
     @SuppressWarnings("deprecation")
     public NumericPageIndicator(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
         if (isInEditMode()) {
             return;
         }
@@ -116,12 +305,28 @@ public class NumericPageIndicator extends View implements PageIndicator {
         final float defaultTopPadding = res.getDimension(R.dimen.default_page_number_indicator_top_padding);
         final float defaultBottomPadding = res.getDimension(R.dimen.default_page_number_indicator_bottom_padding);
         final float defaultTextSize = res.getDimension(R.dimen.default_page_number_indicator_text_size);
+        final float defaultMinTextSize = res.getDimension(R.dimen.default_page_number_indicator_min_text_size);
         final boolean defaultShowChangePageButtons = res.getBoolean(R.bool.default_page_number_indicator_show_change_page_buttons);
         final boolean defaultShowStartEndButtons = res.getBoolean(R.bool.default_page_number_indicator_show_start_end_buttons);
+        final boolean defaultPageNumberGrouping = res.getBoolean(R.bool.default_page_number_indicator_page_number_grouping);
+        final boolean defaultScrubEnabled = res.getBoolean(R.bool.default_page_number_indicator_scrub_enabled);
+        final boolean defaultKeyNavigationEnabled = res.getBoolean(R.bool.default_page_number_indicator_key_navigation_enabled);
+        final float focusStrokeWidth = res.getDimension(R.dimen.default_page_number_indicator_focus_stroke_width);
+        final float defaultScrubStepWidth = res.getDimension(R.dimen.default_page_number_indicator_scrub_step_width);
+        final boolean defaultShowMinimap = res.getBoolean(R.bool.default_page_number_indicator_show_minimap);
+        final float defaultMinimapHeight = res.getDimension(R.dimen.default_page_number_indicator_minimap_height);
+        final int defaultMinimapColor = res.getColor(R.color.default_page_number_indicator_minimap_color);
+        final int defaultMinimapVisitedColor = res.getColor(R.color.default_page_number_indicator_minimap_visited_color);
+        final int defaultMinimapBookmarkColor = res.getColor(R.color.default_page_number_indicator_minimap_bookmark_color);
+        final int defaultThumbnailWidth = res.getDimensionPixelSize(R.dimen.default_page_number_indicator_thumbnail_width);
+        final int defaultThumbnailHeight = res.getDimensionPixelSize(R.dimen.default_page_number_indicator_thumbnail_height);
         
         // Retrieve styles attributes
         final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.NumericPageIndicator, defStyle, 0);
 
+        mPageNumberFormat = PageNumberFormat.forLocale(getDefaultLocale());
+        mPageNumberGrouping = a.getBoolean(R.styleable.NumericPageIndicator_pageNumberGrouping, defaultPageNumberGrouping);
+
         mTextTemplate = a.getString(R.styleable.NumericPageIndicator_textTemplate);
         if (mTextTemplate == null) {
             mTextTemplate = res.getString(R.string.default_page_number_indicator_text_template);
@@ -145,8 +350,23 @@ public class NumericPageIndicator extends View implements PageIndicator {
         if (mTextNextButton == null) {
             mTextNextButton = res.getString(R.string.default_page_number_indicator_next_button_text);
         }
+        mTextUnknownPageCount = a.getString(R.styleable.NumericPageIndicator_unknownPageCountText);
+        if (mTextUnknownPageCount == null) {
+            mTextUnknownPageCount = res.getString(R.string.default_page_number_indicator_unknown_page_count_text);
+        }
+        mTextPartialPageCountSuffix = a.getString(R.styleable.NumericPageIndicator_partialPageCountSuffix);
+        if (mTextPartialPageCountSuffix == null) {
+            mTextPartialPageCountSuffix = res.getString(R.string.default_page_number_indicator_partial_page_count_suffix);
+        }
 
         mColorText = a.getColor(R.styleable.NumericPageIndicator_android_textColor, defaultTextColor);
+        mIconStart = a.getDrawable(R.styleable.NumericPageIndicator_startButtonDrawable);
+        mIconEnd = a.getDrawable(R.styleable.NumericPageIndicator_endButtonDrawable);
+        mIconPrevious = a.getDrawable(R.styleable.NumericPageIndicator_previousButtonDrawable);
+        mIconNext = a.getDrawable(R.styleable.NumericPageIndicator_nextButtonDrawable);
+        mButtonIconSize = a.getDimension(R.styleable.NumericPageIndicator_buttonIconSize, 0);
+        mHasButtonIconColor = a.hasValue(R.styleable.NumericPageIndicator_buttonIconColor);
+        mColorButtonIcon = a.getColor(R.styleable.NumericPageIndicator_buttonIconColor, mColorText);
         mColorPageNumberText = a.getColor(R.styleable.NumericPageIndicator_pageNumberTextColor, defaultPageNumberTextColor);
         mPageNumberTextBold = a.getBoolean(R.styleable.NumericPageIndicator_pageNumberTextBold, defaultPageNumberTextBold);
         mColorPressedButton = a.getColor(R.styleable.NumericPageIndicator_pressedButtonColor, defaultButtonPressedColor);
@@ -155,19 +375,58 @@ public class NumericPageIndicator extends View implements PageIndicator {
         mPaintText.setColor(mColorText);
         mShowChangePageButtons = a.getBoolean(R.styleable.NumericPageIndicator_showChangePageButtons, defaultShowChangePageButtons);
         mShowStartEndButtons = a.getBoolean(R.styleable.NumericPageIndicator_showStartEndButtons, defaultShowStartEndButtons);
+        mScrubEnabled = a.getBoolean(R.styleable.NumericPageIndicator_scrubEnabled, defaultScrubEnabled);
+        setFocusable(a.getBoolean(R.styleable.NumericPageIndicator_keyNavigationEnabled, defaultKeyNavigationEnabled));
+        mScrubStepWidth = a.getDimension(R.styleable.NumericPageIndicator_scrubStepWidth, defaultScrubStepWidth);
+        final int thumbnailWidth = a.getDimensionPixelSize(R.styleable.NumericPageIndicator_thumbnailWidth, defaultThumbnailWidth);
+        final int thumbnailHeight = a.getDimensionPixelSize(R.styleable.NumericPageIndicator_thumbnailHeight, defaultThumbnailHeight);
+        final int thumbnailCacheSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / THUMBNAIL_CACHE_MEMORY_FRACTION);
+        mThumbnailPreview = new ThumbnailPreview(this, mHandler, thumbnailWidth, thumbnailHeight, thumbnailCacheSize);
+        mShowMinimap = a.getBoolean(R.styleable.NumericPageIndicator_showMinimap, defaultShowMinimap);
+        mMinimapHeight = a.getDimension(R.styleable.NumericPageIndicator_minimapHeight, defaultMinimapHeight);
+        mMinimap = new Minimap(a.getColor(R.styleable.NumericPageIndicator_minimapColor, defaultMinimapColor),
+                a.getColor(R.styleable.NumericPageIndicator_minimapVisitedColor, defaultMinimapVisitedColor),
+                a.getColor(R.styleable.NumericPageIndicator_minimapBookmarkColor, defaultMinimapBookmarkColor));
+        mTabularDigits = a.getBoolean(R.styleable.NumericPageIndicator_tabularDigits, false);
+        switch (a.getInt(R.styleable.NumericPageIndicator_pageNumberTransition, TRANSITION_FADE)) {
+        case TRANSITION_SLIDE:
+            mPageNumberTransition = new SlideTransition();
+            break;
+        case TRANSITION_ODOMETER:
+            mPageNumberTransition = new OdometerTransition();
+            break;
+        default:
+            mPageNumberTransition = new FadeTransition();
+            break;
+        }
         
         mPaintButtonBackground.setColor(mColorPressedButton);
+        mPaintFocus.setColor(mColorPressedButton);
+        mPaintFocus.setStyle(Paint.Style.STROKE);
+        mPaintFocus.setStrokeWidth(focusStrokeWidth);
         final float textSize = a.getDimension(R.styleable.NumericPageIndicator_android_textSize, defaultTextSize);
+        mTextSize = textSize;
+        mAutoFitTextSize = a.getBoolean(R.styleable.NumericPageIndicator_autoFitTextSize, false);
+        mMinTextSize = a.getDimension(R.styleable.NumericPageIndicator_minTextSize, defaultMinTextSize);
+        mAdaptiveQuality = a.getBoolean(R.styleable.NumericPageIndicator_adaptiveQuality, false);
+        final float frameBudget = a.getFloat(R.styleable.NumericPageIndicator_frameBudget, 0);
+        if (frameBudget > 0) {
+            mFrameCostMonitor.setBudget((long) (frameBudget * 1000000));
+        }
         mPaintText.setTextSize(textSize);
         mPaintText.setAntiAlias(true);
 
         mPaintPageNumberText.setColor(mColorPageNumberText);
+        mPaintMinimapMarker.setColor(mColorPageNumberText);
         mPaintPageNumberText.setTextSize(textSize);
         mPaintPageNumberText.setAntiAlias(true);
         if (mPageNumberTextBold) {
             mPaintPageNumberText.setTypeface(Typeface.DEFAULT_BOLD);
         }
 
+        mAccessibilityHelper = new IndicatorAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+
         final Drawable background = a.getDrawable(R.styleable.NumericPageIndicator_android_background);
         if (background != null) {
             setBackgroundDrawable(background);
@@ -189,12 +448,17 @@ public class NumericPageIndicator extends View implements PageIndicator {
      *  number and (optionally) the page count.<p>The provided template must contain the text
      *  #i, which will be replaced by the page number. If can also contain the optional 
      *  text #N, which will be replaced by the number of pages. <p>For example: "Page #i of #N"
+     *  <p>If sections have been defined (see {@link #setSectionStarts(int[])}) the template
+     *  can use #j instead of #i to show the page number relative to the current section, plus
+     *  #c (number of the current section) and #M (number of pages of the current section).
+     *  For example: "Ch. #c, page #j of #M"
      * @param textTemplate The desired text template
      */
     public void setTextTemplate(String textTemplate) {
         mTextTemplate = textTemplate;
         parseTextTemplate();
         updateText();
+        onContentWidthChanged();
         invalidate();
     }
 
@@ -211,6 +475,7 @@ public class NumericPageIndicator extends View implements PageIndicator {
      */
     public void setStartButtonText(String textStartButton) {
         this.mTextStartButton = textStartButton;
+        onContentWidthChanged();
         invalidate();
     }
 
@@ -227,6 +492,7 @@ public class NumericPageIndicator extends View implements PageIndicator {
      */
     public void setNextButtonText(String textNextButton) {
         this.mTextNextButton = textNextButton;
+        onContentWidthChanged();
         invalidate();
     }
 
@@ -243,6 +509,7 @@ public class NumericPageIndicator extends View implements PageIndicator {
      */
     public void setPreviousButtonText(String textPreviousButton) {
         this.mTextPreviousButton = textPreviousButton;
+        onContentWidthChanged();
         invalidate();
     }
     
@@ -259,309 +526,1754 @@ public class NumericPageIndicator extends View implements PageIndicator {
      */
     public void setEndButtonText(String textEndButton) {
         this.mTextEndButton = textEndButton;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public int getTextColor() {
-        return mColorText;
+    /**
+     * Returns the icon of the "start page" button, or null if the button shows its text
+     */
+    public Drawable getStartButtonDrawable() {
+        return mIconStart;
     }
 
-    public void setTextColor(int textColor) {
-        mPaintText.setColor(textColor);
-        mColorText = textColor;
+    /**
+     * Sets an icon to be displayed in the "start page" button instead of its text. The
+     * text is still used as the content description of the button.
+     * <p>
+     * Icons are rasterised once and then drawn as cached bitmaps, so this is the preferred
+     * way to use vector icons. The icon is tinted with the button icon color
+     * (see {@link #setButtonIconColor(int)}).
+     * @param icon The desired icon, or null to show the text
+     */
+    public void setStartButtonDrawable(Drawable icon) {
+        mIconStart = icon;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public int getPageNumberTextColor() {
-        return mColorText;
+    /**
+     * Returns the icon of the "end page" button, or null if the button shows its text
+     */
+    public Drawable getEndButtonDrawable() {
+        return mIconEnd;
     }
 
-    public void setPageNumberTextColor(int pageNumberTextColor) {
-        mPaintPageNumberText.setColor(pageNumberTextColor);
-        mColorPageNumberText = pageNumberTextColor;
+    /**
+     * Sets an icon to be displayed in the "end page" button instead of its text
+     * @see #setStartButtonDrawable(Drawable)
+     * @param icon The desired icon, or null to show the text
+     */
+    public void setEndButtonDrawable(Drawable icon) {
+        mIconEnd = icon;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public boolean isPageNumberTextBold() {
-        return mPageNumberTextBold;
+    /**
+     * Returns the icon of the "previous page" button, or null if the button shows its text
+     */
+    public Drawable getPreviousButtonDrawable() {
+        return mIconPrevious;
     }
 
-    public void setPageNumberTextBold(boolean pageNumberTextBold) {
-        mPageNumberTextBold = pageNumberTextBold;
-        final Typeface typeface = mPageNumberTextBold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT;
-        mPaintPageNumberText.setTypeface(typeface);
+    /**
+     * Sets an icon to be displayed in the "previous page" button instead of its text
+     * @see #setStartButtonDrawable(Drawable)
+     * @param icon The desired icon, or null to show the text
+     */
+    public void setPreviousButtonDrawable(Drawable icon) {
+        mIconPrevious = icon;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public int getPressedButtonColor() {
-        return mColorPressedButton;
+    /**
+     * Returns the icon of the "next page" button, or null if the button shows its text
+     */
+    public Drawable getNextButtonDrawable() {
+        return mIconNext;
     }
 
-    public void setPressedButtonColor(int color) {
-        mPaintButtonBackground.setColor(color);
-        mColorPressedButton = color;
+    /**
+     * Sets an icon to be displayed in the "next page" button instead of its text
+     * @see #setStartButtonDrawable(Drawable)
+     * @param icon The desired icon, or null to show the text
+     */
+    public void setNextButtonDrawable(Drawable icon) {
+        mIconNext = icon;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public float getTextSize() {
-        return mPaintText.getTextSize();
+    /**
+     * Returns the size of the button icons, or 0 if it is derived from the text size
+     */
+    public float getButtonIconSize() {
+        return mButtonIconSize;
     }
 
     /**
-     * Set the default text size to the given value, interpreted as "pixels"
-     * pixel" units.
-     * 
-     * @param textSize
-     *            The text size in pixels
+     * Sets the size (width and height) of the button icons
+     * @param buttonIconSize The desired size in pixels, or 0 to make the icons as tall as the text
      */
-    public void setTextSize(float textSize) {
-        mPaintText.setTextSize(textSize);
-        mPaintPageNumberText.setTextSize(textSize);
+    public void setButtonIconSize(float buttonIconSize) {
+        mButtonIconSize = buttonIconSize;
+        onContentWidthChanged();
         invalidate();
     }
 
-    public float getTopPadding() {
-        return this.mPaddingTop;
+    /**
+     * Returns the color used to tint the button icons
+     */
+    public int getButtonIconColor() {
+        return mHasButtonIconColor ? mColorButtonIcon : mColorText;
     }
 
-    public void setTopPadding(float topPadding) {
-        mPaddingTop = topPadding;
+    /**
+     * Sets the color used to tint the button icons. By default they are tinted with the
+     * text color.
+     * @param buttonIconColor The desired color
+     */
+    public void setButtonIconColor(int buttonIconColor) {
+        mColorButtonIcon = buttonIconColor;
+        mHasButtonIconColor = true;
+        resolveButtonIcons();
         invalidate();
     }
 
-    public float getBottomPadding() {
-        return this.mPaddingBottom;
+    /**
+     * Returns the text displayed in place of #N while the page count is unknown
+     */
+    public String getUnknownPageCountText() {
+        return mTextUnknownPageCount;
     }
 
-    public void setBottomPadding(float bottomPadding) {
-        mPaddingBottom = bottomPadding;
-        invalidate();
+    /**
+     * Sets the text displayed in place of #N while a {@link PageCountProvider} is
+     * still resolving the page count
+     * @param textUnknownPageCount The desired text (e.g. "?")
+     */
+    public void setUnknownPageCountText(String textUnknownPageCount) {
+        mTextUnknownPageCount = textUnknownPageCount;
+        if (mPageCountState == PAGE_COUNT_UNKNOWN) {
+            updatePageCountText();
+            invalidate();
+        }
     }
 
-    public void setTypeface(Typeface typeface) {
-        mPaintText.setTypeface(typeface);
-        invalidate();
+    /**
+     * Returns the suffix appended to the page count when only a lower bound is known
+     */
+    public String getPartialPageCountSuffix() {
+        return mTextPartialPageCountSuffix;
     }
 
-    public Typeface getTypeface() {
-        return mPaintText.getTypeface();
+    /**
+     * Sets the suffix appended to the page count when a {@link PageCountProvider} has
+     * only reported a lower bound. For example, with the suffix "+" the text "Page 3 of 40+"
+     * is shown when there are at least 40 pages
+     * @param textPartialPageCountSuffix The desired suffix
+     */
+    public void setPartialPageCountSuffix(String textPartialPageCountSuffix) {
+        mTextPartialPageCountSuffix = textPartialPageCountSuffix;
+        if (mPageCountState == PAGE_COUNT_AT_LEAST) {
+            updatePageCountText();
+            invalidate();
+        }
     }
 
-    public boolean isShowChangePageButtons() {
-        return mShowChangePageButtons;
+    public PageCountProvider getPageCountProvider() {
+        return mPageCountProvider;
     }
 
-    public void setShowChangePageButtons(boolean showChangePageButtons) {
-        this.mShowChangePageButtons = showChangePageButtons;
-        invalidate();
-    }
-    
-    public boolean isShowStartEndButtons() {
-        return mShowStartEndButtons;
+    /**
+     * Sets the object used to resolve the page count displayed by the #N placeholder.
+     * The provider is queried on a background thread; until it reports a value a
+     * placeholder text is displayed (see {@link #setUnknownPageCountText(String)}).
+     * <p>
+     * Pass null to go back to displaying the page count reported by the adapter.
+     * @param pageCountProvider The provider, or null
+     */
+    public void setPageCountProvider(PageCountProvider pageCountProvider) {
+        mPageCountProvider = pageCountProvider;
+        if (mPageCountProvider == null) {
+            cancelPageCountRequest();
+            mPageCountState = PAGE_COUNT_FROM_ADAPTER;
+            updatePageCountText();
+            invalidate();
+        } else {
+            refreshPageCount();
+        }
     }
 
-    public void setShowStartEndButtons(boolean showStartEndButtons) {
-        this.mShowStartEndButtons = showStartEndButtons;
+    /**
+     * Discards the page count reported by the current {@link PageCountProvider} and asks
+     * it to resolve the count again. Useful when the underlying data set has changed.
+     */
+    public void refreshPageCount() {
+        if (mPageCountProvider == null) {
+            Log.w(TAG, "Trying to refresh the page count when there is no page count provider");
+            return;
+        }
+        mPageCountState = PAGE_COUNT_UNKNOWN;
+        updatePageCountText();
         invalidate();
+        cancelPageCountRequest();
+        final PageCountProvider provider = mPageCountProvider;
+        final PageCountCallback callback = new PageCountCallback(mPageCountRequestId);
+        mPageCountRequest = sPageCountExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    provider.resolvePageCount(callback);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Page count provider failed", e);
+                }
+            }
+        });
     }
 
     /**
-     * Parses a template (e.g. "Page #i of #N) splitting it in two parts: the
-     * one before the page number "Page " and the one after (" of #N"). This is
-     * necessary because when we draw the text we'll draw the page number
-     * independently, as it has to fade out when the uses swipes to a new page
-     * 
-     * @param template The text template to be parsed (e.g. "Page #i of #N)
+     * Interrupts the resolution in progress, if any, and makes sure that its late reports
+     * are ignored
      */
-    private void parseTextTemplate() {
-        final String placeholder = TEMPLATE_PAGE_NUMBER_PLACEHOLDER;
-        final int indexOfPageNumber = mTextTemplate.indexOf(placeholder);
-        if (indexOfPageNumber == -1) {
-            throw new RuntimeException("The template must contain the page number placeholder \"" + placeholder + "\"");
+    private void cancelPageCountRequest() {
+        ++mPageCountRequestId;
+        if (mPageCountRequest != null) {
+            mPageCountRequest.cancel(true);
+            mPageCountRequest = null;
         }
-        mTextTemplateFirstPart = mTextTemplate.substring(0, indexOfPageNumber);
-        mTextTemplateSecondPart = mTextTemplate.substring(indexOfPageNumber + placeholder.length());
     }
 
     /**
-     * Updates the two "fixed" parts of the indicator text. The first part is
-     * the one before the page number (e.g. "Page ") and the second part is the
-     * one after (" of #N"). Updating consists simply on replacing the #N part
-     * by the actual page count. So in the example above the outcome would be:
-     * <li>First part: "Page " (unmodified) <li>Second part: " of 20" ("#N"
-     * replaced by "20")
+     * Thread-safe version of {@link #setCurrentItem(int)}. Can be called from any thread;
+     * the page is changed on the UI thread, on its next iteration. If several values are
+     * posted before that only the last one is applied.
      */
-    private void updateText() {
-        final int pageCount = mViewPager.getAdapter().getCount();
-        final String textPageCount = Integer.toString(pageCount);
-        final String placeholder = TEMPLATE_PAGE_COUNT_PLACEHOLDER;
-        mTextFirstPart = mTextTemplateFirstPart.replace(placeholder, textPageCount);
-        mTextLastPart = mTextTemplateSecondPart.replace(placeholder, textPageCount);
+    public void postCurrentItem(int item) {
+        PublishedState state;
+        do {
+            state = mPublishedState.get();
+        } while (!mPublishedState.compareAndSet(state, state.withCurrentItem(item)));
+        schedulePublishedState();
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see android.view.View#onDraw(android.graphics.Canvas)
+    /**
+     * Sets the number displayed by the #N placeholder, overriding the count of the adapter
+     * and the one reported by the {@link PageCountProvider}, if any. Can be called from any
+     * thread; if several values are posted before the UI thread applies them only the last
+     * one is displayed.
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (mViewPager == null) {
-            return;
-        }
-        final int count = mViewPager.getAdapter().getCount();
-        if (count == 0) {
-            return;
-        }
-
-        // mCurrentPage is -1 on first start and after orientation changed. If
-        // so, retrieve the correct index from viewpager.
-        if (mCurrentPage == -1 && mViewPager != null) {
-            mCurrentPage = mViewPager.getCurrentItem();
+    public void postPageCount(int pageCount) {
+        if (pageCount < 0) {
+            throw new IllegalArgumentException("The page count cannot be negative");
         }
+        PublishedState state;
+        do {
+            state = mPublishedState.get();
+        } while (!mPublishedState.compareAndSet(state, state.withPageCount(pageCount)));
+        schedulePublishedState();
+    }
 
-        // Handle the first time we draw the view, when onMeasure has not been
-        // called yet
-        if (mTextFirstPart == null) {
-            updateText();
+    /**
+     * Thread-safe version of {@link #setTextTemplate(String)}
+     */
+    public void postTextTemplate(String textTemplate) {
+        if (textTemplate == null) {
+            throw new IllegalArgumentException("The template cannot be null");
         }
+        PublishedState state;
+        do {
+            state = mPublishedState.get();
+        } while (!mPublishedState.compareAndSet(state, state.withTextTemplate(textTemplate)));
+        schedulePublishedState();
+    }
 
-        // Draw the main text (e.g. "Page 1 of 20"). The hardest part is drawing
-        // the page
-        // number itself, because of the animated effect in which the current
-        // page fades
-        // out and the next one fades in. In order to implement this effect we
-        // are forced to
-        // draw the text in four "chunks": the first part ("Page "), the current
-        // page
-        // number ("1"), the next page number ("2"), and the last part
-        // (" of 20").
-        // To implement the fade in and fade out animations we simply change the
-        // alpha
-        // of the page number text, relative to the view pager scroll
-
-        final float currentPageWeight = 1 - mPageOffset;
-        final float nextPageWeight = mPageOffset;
-        final float firstPartWidth = mPaintText.measureText(mTextFirstPart);
-        final String currentPageNumber = Integer.toString(mCurrentPage + 1);
-        final String nextPageNumber = Integer.toString(mCurrentPage + 2);
-        final float currentPageNumberWidth = mPaintText.measureText(currentPageNumber);
-        final float nextPageNumberWidth = mPaintText.measureText(nextPageNumber);
-        final float pageNumberWidth = currentPageWeight * currentPageNumberWidth + nextPageWeight * nextPageNumberWidth;
-        final float lastPartWidth = mPaintText.measureText(mTextLastPart);
-        final float totalWidth = firstPartWidth + pageNumberWidth + lastPartWidth;
-        float currentX = (getWidth() - totalWidth) / 2;
-        canvas.drawText(mTextFirstPart, currentX, mTextBottom, mPaintText);
-        currentX += firstPartWidth;
-        final float pageNumberCenterX = currentX + pageNumberWidth / 2;
-
-        final int startAlpha = Color.alpha(mColorPageNumberText);
-        final int endAlpha = 0;
-        final float currentPageNumberAlpha = currentPageWeight * startAlpha + nextPageWeight * endAlpha;
-
-        mPaintPageNumberText.setAlpha((int) currentPageNumberAlpha);
-        canvas.drawText(currentPageNumber, pageNumberCenterX - currentPageNumberWidth / 2, mTextBottom, mPaintPageNumberText);
+    /**
+     * Thread-safe version of {@link #setTextColor(int)}
+     */
+    public void postTextColor(int textColor) {
+        PublishedState state;
+        do {
+            state = mPublishedState.get();
+        } while (!mPublishedState.compareAndSet(state, state.withTextColor(textColor)));
+        schedulePublishedState();
+    }
 
-        final float nextPageNumberAlpha = nextPageWeight * startAlpha + currentPageWeight * endAlpha;
-        mPaintPageNumberText.setAlpha((int) nextPageNumberAlpha);
-        canvas.drawText(nextPageNumber, pageNumberCenterX - nextPageNumberWidth / 2, mTextBottom, mPaintPageNumberText);
+    /**
+     * Thread-safe version of {@link #setPageNumberTextColor(int)}
+     */
+    public void postPageNumberTextColor(int pageNumberTextColor) {
+        PublishedState state;
+        do {
+            state = mPublishedState.get();
+        } while (!mPublishedState.compareAndSet(state, state.withPageNumberTextColor(pageNumberTextColor)));
+        schedulePublishedState();
+    }
 
-        currentX += pageNumberWidth;
-        canvas.drawText(mTextLastPart, currentX, mTextBottom, mPaintText);
+    /**
+     * Makes sure that the UI thread applies the latest published state. At most one
+     * runnable is pending at any time, however many values are published.
+     */
+    private void schedulePublishedState() {
+        if (mPublishedStateScheduled.compareAndSet(false, true)) {
+            mHandler.post(mApplyPublishedStateRunnable);
+        }
+    }
 
-        // Draw the "start" and "end" buttons
-        if (mShowStartEndButtons) {
-            final int textStartAlpha = Color.alpha(mColorText);
-            final int textEndAlpha = 0;
-            if (mCurrentPage != 0 && mStartDown) {
-                canvas.drawRect(mRectStart, mPaintButtonBackground);
-            }
-            if (mCurrentPage != count - 1 && mEndDown) {
-                canvas.drawRect(mRectEnd, mPaintButtonBackground);
+    private final Runnable mApplyPublishedStateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Cleared before reading, so that a value published from now on schedules a new run
+            mPublishedStateScheduled.set(false);
+            final PublishedState state = mPublishedState.get();
+            final PublishedState applied = mAppliedState;
+            if (state.version == applied.version) {
+                return;
             }
-            if (mCurrentPage == 0) {
-                mPaintText.setAlpha((int) (nextPageWeight * textStartAlpha + currentPageWeight * textEndAlpha));
+            mAppliedState = state;
+            // Every property posted since the last run is applied, even if its value didn't change
+            if (state.textTemplateVersion > applied.textTemplateVersion) {
+                setTextTemplate(state.textTemplate);
             }
-            canvas.drawText(mTextStartButton, mRectStart.centerX() - mWidthStartText / 2, mRectStartText.bottom, mPaintText);
-            mPaintText.setAlpha(Color.alpha(mColorText));
-            if (mCurrentPage < count - 1) {
-                if (mCurrentPage == count - 2) {
-                    mPaintText.setAlpha((int) (currentPageWeight * textStartAlpha + nextPageWeight * textEndAlpha));
-                }
-                canvas.drawText(mTextEndButton, mRectEnd.centerX() - mWidthEndText / 2, mRectEndText.bottom, mPaintText);
-                mPaintText.setAlpha(Color.alpha(mColorText));
+            if (state.textColorVersion > applied.textColorVersion) {
+                setTextColor(state.textColor);
             }
-        }
-
-        
-        // Draw the "next" and "previous" buttons
-        if (mShowChangePageButtons) {
-            final int textStartAlpha = Color.alpha(mColorText);
-            final int textEndAlpha = 0;
-            if (mCurrentPage != 0 && mPreviousDown) {
-                canvas.drawRect(mRectPrevious, mPaintButtonBackground);
-            } 
-            if (mCurrentPage != count - 1 && mNextDown) {
-                canvas.drawRect(mRectNext, mPaintButtonBackground);
+            if (state.pageNumberTextColorVersion > applied.pageNumberTextColorVersion) {
+                setPageNumberTextColor(state.pageNumberTextColor);
             }
-            if (mCurrentPage == 0) {
-                mPaintText.setAlpha((int) (nextPageWeight * textStartAlpha + currentPageWeight * textEndAlpha));
+            if (state.pageCountVersion > applied.pageCountVersion) {
+                // The posted count wins over the provider's resolution in progress, whose
+                // late reports would otherwise overwrite it
+                cancelPageCountRequest();
+                onProvidedPageCountChanged(mPageCountRequestId, PAGE_COUNT_RESOLVED, state.pageCount);
             }
-            canvas.drawText(mTextPreviousButton, mRectPrevious.centerX() - mWidthPreviousText / 2, mRectPreviousText.bottom, mPaintText);
-            mPaintText.setAlpha(Color.alpha(mColorText));
-            if (mCurrentPage < count - 1) {
-                if (mCurrentPage == count - 2) {
-                    mPaintText.setAlpha((int) (currentPageWeight * textStartAlpha + nextPageWeight * textEndAlpha));
+            if (state.currentItemVersion > applied.currentItemVersion) {
+                if (mViewPager == null) {
+                    Log.w(TAG, "Trying to change the current item when the ViewPager has not been bound");
+                } else {
+                    setCurrentItem(state.currentItem);
                 }
-                canvas.drawText(mTextNextButton, mRectNext.centerX() - mWidthNextText / 2, mRectNextText.bottom, mPaintText);
-                mPaintText.setAlpha(Color.alpha(mColorText));
             }
         }
+    };
+
+    /**
+     * Divides the pages in sections (e.g. chapters), so that the template can display
+     * page numbers relative to the current section. See {@link #setTextTemplate(String)}.
+     * <p>
+     * The array is copied, so it can be reused after calling this method.
+     * @param sectionStarts The index of the first page of every section, in strictly
+     *  increasing order. The first section must start at page 0. Pass null to remove
+     *  all sections
+     */
+    public void setSectionStarts(int[] sectionStarts) {
+        setSectionStarts(sectionStarts, sectionStarts == null ? 0 : sectionStarts.length);
     }
 
-    @Override
-    public void setViewPager(ViewPager view) {
-        if (mViewPager == view) {
-            return;
-        }
-        if (mViewPager != null) {
-            mViewPager.setOnPageChangeListener(null);
-        }
-        if (view.getAdapter() == null) {
-            throw new IllegalStateException("ViewPager does not have adapter instance.");
+    /**
+     * Like {@link #setSectionStarts(int[])}, but only the first sectionCount entries of
+     * the array are used. This allows reusing a partially filled array.
+     */
+    public void setSectionStarts(int[] sectionStarts, int sectionCount) {
+        if (sectionStarts == null || sectionCount == 0) {
+            mSectionIndex.clear();
+        } else {
+            mSectionIndex.set(sectionStarts, sectionCount);
         }
-        mViewPager = view;
-        mViewPager.setOnPageChangeListener(this);
-        invalidate();
+        onSectionsChanged();
     }
 
-    @Override
-    public void setViewPager(ViewPager view, int initialPosition) {
-        setViewPager(view);
-        setCurrentItem(initialPosition);
+    /**
+     * Adds sections after the ones already known by the indicator, for when sections are
+     * loaded incrementally. 
+     * @param sectionStarts Array containing the index of the first page of every new section
+     * @param offset Position in the array of the first new section
+     * @param sectionCount Number of new sections
+     */
+    public void appendSectionStarts(int[] sectionStarts, int offset, int sectionCount) {
+        mSectionIndex.append(sectionStarts, offset, sectionCount);
+        onSectionsChanged();
     }
 
-    @Override
-    public void notifyDataSetChanged() {
-        invalidate();
+    public int getSectionCount() {
+        return mSectionIndex.size();
     }
 
-    @Override
-    public void setCurrentItem(int item) {
-        if (mViewPager == null) {
-            throw new IllegalStateException("ViewPager has not been bound.");
-        }
-        mViewPager.setCurrentItem(item);
-        mCurrentPage = item;
+    /**
+     * Returns the index of the section which contains the current page, or 0 if no
+     * sections have been defined
+     */
+    public int getCurrentSection() {
+        return mCurrentSection;
+    }
+
+    private void onSectionsChanged() {
+        mCurrentSection = findSection(getLogicalPage(Math.max(mCurrentPage, 0)));
+        updateText();
+        invalidate();
+    }
+
+    public PageNumberTransition getPageNumberTransition() {
+        return mPageNumberTransition;
+    }
+
+    /**
+     * Sets the animation used to replace the current page number by the next one while
+     * the user swipes between pages. See {@link FadeTransition}, {@link SlideTransition}
+     * and {@link OdometerTransition}.
+     * @param pageNumberTransition The desired transition
+     */
+    public void setPageNumberTransition(PageNumberTransition pageNumberTransition) {
+        if (pageNumberTransition == null) {
+            throw new IllegalArgumentException("The page number transition cannot be null");
+        }
+        mPageNumberTransition = pageNumberTransition;
+        invalidate();
+    }
+
+    /**
+     * Returns the locale set with {@link #setLocale(Locale)}, or null if the indicator
+     * follows the locale of the device
+     */
+    public Locale getLocale() {
+        return mLocale;
+    }
+
+    /**
+     * Sets the locale used to format numbers (digits and grouping separators). By default
+     * the locale of the device is used.
+     * @param locale The desired locale, or null to follow the locale of the device
+     */
+    public void setLocale(Locale locale) {
+        mLocale = locale;
+        onLocaleChanged();
+    }
+
+    public boolean isPageNumberGrouping() {
+        return mPageNumberGrouping;
+    }
+
+    /**
+     * Sets whether numbers are displayed with grouping separators (e.g. "12,345,678"
+     * instead of "12345678")
+     */
+    public void setPageNumberGrouping(boolean pageNumberGrouping) {
+        mPageNumberGrouping = pageNumberGrouping;
+        onLocaleChanged();
+    }
+
+    private Locale getDefaultLocale() {
+        final Locale locale = getResources().getConfiguration().locale;
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    private void onLocaleChanged() {
+        mPageNumberFormat = PageNumberFormat.forLocale(mLocale != null ? mLocale : getDefaultLocale());
+        resetPageNumberTexts();
+        updateText();
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (mLocale == null && mPageNumberFormat != null) {
+            onLocaleChanged();
+        }
+    }
+
+    public boolean isTabularDigits() {
+        return mTabularDigits;
+    }
+
+    /**
+     * Enables the tabular digits mode, in which the page number is centered in a box
+     * wide enough for the largest page number (that is, the widest digit times the number
+     * of digits of the page count). This keeps the text still while swiping between
+     * numbers of different widths, and allows the layout of the text to be computed
+     * once instead of on every frame.
+     */
+    public void setTabularDigits(boolean tabularDigits) {
+        mTabularDigits = tabularDigits;
+        mTabularLayoutValid = false;
+        invalidate();
+    }
+
+    public boolean isScrubEnabled() {
+        return mScrubEnabled;
+    }
+
+    /**
+     * Enables or disables the scrub gesture. When enabled, dragging horizontally over
+     * the page number changes the displayed page (faster drags skip more pages) and
+     * flings keep going for a while. The view pager is only moved when the gesture ends,
+     * so intermediate pages are never instantiated.
+     */
+    public void setScrubEnabled(boolean scrubEnabled) {
+        mScrubEnabled = scrubEnabled;
+        if (!scrubEnabled && (mScrubTracking || mScrubFlinging)) {
+            endScrub();
+        }
+    }
+
+    public boolean isKeyNavigationEnabled() {
+        return isFocusable();
+    }
+
+    /**
+     * Makes the indicator focusable, so that the D-pad, the keyboard and rotary inputs
+     * can change the page. Disabled by default. While focused, the indicator is outlined
+     * with the pressed button color.
+     */
+    public void setKeyNavigationEnabled(boolean keyNavigationEnabled) {
+        setFocusable(keyNavigationEnabled);
+    }
+
+    public float getScrubStepWidth() {
+        return mScrubStepWidth;
+    }
+
+    /**
+     * Sets the horizontal distance, in pixels, that a slow drag has to travel in order
+     * to advance one page while scrubbing
+     */
+    public void setScrubStepWidth(float scrubStepWidth) {
+        mScrubStepWidth = scrubStepWidth;
+    }
+
+    public ThumbnailLoader getThumbnailLoader() {
+        return mThumbnailPreview.getLoader();
+    }
+
+    /**
+     * Sets the loader of the thumbnails displayed in a floating preview while the user
+     * scrubs through the pages, which allows browsing long documents visually without
+     * instantiating their pages. Thumbnails are loaded in the background and cached (see
+     * {@link #setThumbnailCacheSize(int)}). Pass null to disable the preview.
+     */
+    public void setThumbnailLoader(ThumbnailLoader thumbnailLoader) {
+        mThumbnailPreview.setLoader(thumbnailLoader);
+    }
+
+    public int getThumbnailCacheSize() {
+        return mThumbnailPreview.getMaxCacheBytes();
+    }
+
+    /**
+     * Sets the maximum number of bytes used by the cached thumbnails. The default is
+     * 1/32 of the maximum heap size. Changing it evicts all the cached thumbnails.
+     */
+    public void setThumbnailCacheSize(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The thumbnail cache size must be positive");
+        }
+        mThumbnailPreview.setMaxCacheBytes(maxBytes);
+    }
+
+    public SessionRecorder getSessionRecorder() {
+        return mSessionRecorder;
+    }
+
+    /**
+     * Starts recording the inputs received by the indicator (view pager callbacks and
+     * touch events) into the given recorder, so that they can be replayed later with a
+     * {@link SessionReplayer}. Pass null to stop recording.
+     */
+    public void setSessionRecorder(SessionRecorder sessionRecorder) {
+        mSessionRecorder = sessionRecorder;
+    }
+
+    public boolean isShowMinimap() {
+        return mShowMinimap;
+    }
+
+    /**
+     * Shows or hides the minimap, a strip at the bottom of the indicator (inside the bottom
+     * padding) which shows the current position, the visited pages and the bookmarks.
+     * Visited pages are only tracked while the minimap is shown, and only for documents
+     * with up to 16,777,216 pages.
+     */
+    public void setShowMinimap(boolean showMinimap) {
+        if (showMinimap == mShowMinimap) {
+            return;
+        }
+        mShowMinimap = showMinimap;
+        if (!showMinimap) {
+            // Frees the visited bitset
+            mMinimap.setPageCount(0);
+        } else if (mViewPager != null) {
+            markVisited(mViewPager.getCurrentItem());
+        }
+        invalidate();
+    }
+
+    public float getMinimapHeight() {
+        return mMinimapHeight;
+    }
+
+    public void setMinimapHeight(float minimapHeight) {
+        mMinimapHeight = minimapHeight;
+        layoutButtons();
+        invalidate();
+    }
+
+    public int getMinimapColor() {
+        return mMinimap.getTrackColor();
+    }
+
+    /**
+     * Sets the color of the parts of the minimap which haven't been visited
+     */
+    public void setMinimapColor(int minimapColor) {
+        mMinimap.setColors(minimapColor, mMinimap.getVisitedColor(), mMinimap.getBookmarkColor());
+        invalidate();
+    }
+
+    public int getMinimapVisitedColor() {
+        return mMinimap.getVisitedColor();
+    }
+
+    /**
+     * Sets the color of the visited parts of the minimap. When a pixel of the minimap
+     * stands for several pages its color depends on how many of them have been visited.
+     */
+    public void setMinimapVisitedColor(int minimapVisitedColor) {
+        mMinimap.setColors(mMinimap.getTrackColor(), minimapVisitedColor, mMinimap.getBookmarkColor());
+        invalidate();
+    }
+
+    public int getMinimapBookmarkColor() {
+        return mMinimap.getBookmarkColor();
+    }
+
+    public void setMinimapBookmarkColor(int minimapBookmarkColor) {
+        mMinimap.setColors(mMinimap.getTrackColor(), mMinimap.getVisitedColor(), minimapBookmarkColor);
+        invalidate();
+    }
+
+    /**
+     * Sets the pages highlighted as bookmarks in the minimap
+     * @param pages The bookmarked pages (logical pages in virtual mode), or null to remove
+     *  all the bookmarks
+     */
+    public void setBookmarks(int[] pages) {
+        mMinimap.setBookmarks(pages);
+        invalidate();
+    }
+
+    /**
+     * Returns true if the given page (logical page in virtual mode) has been selected since
+     * the view pager was bound or since the last call to {@link #clearVisitedPages()},
+     * while the minimap was shown
+     */
+    public boolean isPageVisited(int page) {
+        return mMinimap.isVisited(page);
+    }
+
+    public void clearVisitedPages() {
+        mMinimap.clearVisited();
+        invalidate();
+    }
+
+    private void syncMinimapPageCount() {
+        mMinimap.setPageCount(getLogicalPageCount());
+    }
+
+    private void markVisited(int position) {
+        if (!mShowMinimap) {
+            return;
+        }
+        syncMinimapPageCount();
+        mMinimap.markVisited(getLogicalPage(position));
+    }
+
+    /**
+     * Returns the logical page count set with {@link #setVirtualPageCount(int)}, or 0 if
+     * the indicator is not in virtual mode
+     */
+    public int getVirtualPageCount() {
+        return mVirtualPageCount;
+    }
+
+    /**
+     * Enables the virtual page count mode, intended for circular pagers whose adapter
+     * reports a huge fake count (e.g. Integer.MAX_VALUE) and maps positions to actual
+     * pages with modulo arithmetic. In this mode the indicator does the same mapping:
+     * pages are numbered from 1 to the given count, the page number wraps around from
+     * the last page to the first one, and the start and end buttons go to the nearest
+     * first and last logical pages.
+     * @param virtualPageCount The number of logical pages, or 0 to disable the virtual mode
+     */
+    public void setVirtualPageCount(int virtualPageCount) {
+        if (virtualPageCount < 0) {
+            throw new IllegalArgumentException("The virtual page count cannot be negative");
+        }
+        mVirtualPageCount = virtualPageCount;
+        onSectionsChanged();
+        onPageCountChanged();
+    }
+
+    public int getTextColor() {
+        return mColorText;
+    }
+
+    public void setTextColor(int textColor) {
+        mPaintText.setColor(textColor);
+        mColorText = textColor;
+        if (!mHasButtonIconColor) {
+            resolveButtonIcons();
+        }
+        invalidate();
+    }
+
+    public int getPageNumberTextColor() {
+        return mColorText;
+    }
+
+    public void setPageNumberTextColor(int pageNumberTextColor) {
+        mPaintPageNumberText.setColor(pageNumberTextColor);
+        mPaintMinimapMarker.setColor(pageNumberTextColor);
+        mColorPageNumberText = pageNumberTextColor;
+        invalidate();
+    }
+
+    public boolean isPageNumberTextBold() {
+        return mPageNumberTextBold;
+    }
+
+    public void setPageNumberTextBold(boolean pageNumberTextBold) {
+        mPageNumberTextBold = pageNumberTextBold;
+        final Typeface typeface = mPageNumberTextBold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT;
+        mPaintPageNumberText.setTypeface(typeface);
+        resetPageNumberTexts();
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    public int getPressedButtonColor() {
+        return mColorPressedButton;
+    }
+
+    public void setPressedButtonColor(int color) {
+        mPaintButtonBackground.setColor(color);
+        mPaintFocus.setColor(color);
+        mColorPressedButton = color;
+        invalidate();
+    }
+
+    /**
+     * Returns the size of the text, which can be smaller than the one passed to
+     * {@link #setTextSize(float)} if auto-fit is enabled
+     */
+    public float getTextSize() {
+        return mPaintText.getTextSize();
+    }
+
+    /**
+     * Set the default text size to the given value, interpreted as "pixels"
+     * pixel" units. If auto-fit is enabled this is the maximum text size.
+     * 
+     * @param textSize
+     *            The text size in pixels
+     */
+    public void setTextSize(float textSize) {
+        mTextSize = textSize;
+        applyTextSize(textSize);
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    public boolean isAutoFitTextSize() {
+        return mAutoFitTextSize;
+    }
+
+    /**
+     * Enables or disables the auto-fit mode, in which the text is shrunk as needed (down
+     * to the minimum text size) so that the text for the widest page number fits between
+     * the buttons.
+     */
+    public void setAutoFitTextSize(boolean autoFitTextSize) {
+        mAutoFitTextSize = autoFitTextSize;
+        if (!autoFitTextSize) {
+            applyTextSize(mTextSize);
+        }
+        layoutButtons();
+        invalidate();
+    }
+
+    /**
+     * Returns whether the indicator switches to cheaper rendering when its frames are
+     * over budget
+     */
+    public boolean isAdaptiveQuality() {
+        return mAdaptiveQuality;
+    }
+
+    /**
+     * Enables or disables the adaptive quality mode. In this mode the indicator measures
+     * how long it takes to draw itself and whether frames are dropped while swiping. When
+     * several consecutive frames are over budget it replaces the cross-fades of the page
+     * number and the buttons with hard cuts, and stops antialiasing the text. Full quality
+     * is restored once frames stay well within budget.
+     * @see #setFrameBudget(float)
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        mAdaptiveQuality = adaptiveQuality;
+        final boolean wasReduced = mFrameCostMonitor.isReduced();
+        mFrameCostMonitor.reset();
+        if (wasReduced) {
+            applyQuality();
+        }
+        invalidate();
+    }
+
+    /**
+     * Returns the time that drawing the indicator can take in adaptive quality mode, in
+     * milliseconds
+     */
+    public float getFrameBudget() {
+        return mFrameCostMonitor.getBudget() / 1000000f;
+    }
+
+    /**
+     * Sets the time that drawing the indicator can take in adaptive quality mode before
+     * switching to cheaper rendering. Note that the indicator is only part of the frame,
+     * so this should be a fraction of the frame interval (4 ms by default).
+     * @param frameBudget The budget in milliseconds
+     */
+    public void setFrameBudget(float frameBudget) {
+        if (frameBudget <= 0) {
+            throw new IllegalArgumentException("The frame budget must be positive");
+        }
+        mFrameCostMonitor.setBudget((long) (frameBudget * 1000000));
+    }
+
+    /**
+     * Returns whether the indicator is currently rendering with reduced quality because
+     * of the adaptive quality mode
+     */
+    public boolean isQualityReduced() {
+        return mAdaptiveQuality && mFrameCostMonitor.isReduced();
+    }
+
+    private void applyQuality() {
+        final boolean antiAlias = !mFrameCostMonitor.isReduced();
+        mPaintText.setAntiAlias(antiAlias);
+        mPaintPageNumberText.setAntiAlias(antiAlias);
+    }
+
+    public float getMinTextSize() {
+        return mMinTextSize;
+    }
+
+    /**
+     * Sets the smallest text size that the auto-fit mode can choose, in pixels
+     */
+    public void setMinTextSize(float minTextSize) {
+        mMinTextSize = minTextSize;
+        layoutButtons();
+        invalidate();
+    }
+
+    private void applyTextSize(float textSize) {
+        mPaintText.setTextSize(textSize);
+        mPaintPageNumberText.setTextSize(textSize);
+        measureTextParts();
+        resetPageNumberTexts();
+    }
+
+    public float getTopPadding() {
+        return this.mPaddingTop;
+    }
+
+    public void setTopPadding(float topPadding) {
+        mPaddingTop = topPadding;
+        requestLayout();
+        invalidate();
+    }
+
+    public float getBottomPadding() {
+        return this.mPaddingBottom;
+    }
+
+    public void setBottomPadding(float bottomPadding) {
+        mPaddingBottom = bottomPadding;
+        requestLayout();
+        invalidate();
+    }
+
+    public void setTypeface(Typeface typeface) {
+        mPaintText.setTypeface(typeface);
+        measureTextParts();
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    public Typeface getTypeface() {
+        return mPaintText.getTypeface();
+    }
+
+    public boolean isShowChangePageButtons() {
+        return mShowChangePageButtons;
+    }
+
+    public void setShowChangePageButtons(boolean showChangePageButtons) {
+        this.mShowChangePageButtons = showChangePageButtons;
+        onContentWidthChanged();
+        invalidate();
+    }
+    
+    public boolean isShowStartEndButtons() {
+        return mShowStartEndButtons;
+    }
+
+    public void setShowStartEndButtons(boolean showStartEndButtons) {
+        this.mShowStartEndButtons = showStartEndButtons;
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    /**
+     * Parses a template (e.g. "Page #i of #N) splitting it in two parts: the
+     * one before the page number "Page " and the one after (" of #N"). This is
+     * necessary because when we draw the text we'll draw the page number
+     * independently, as it has to fade out when the uses swipes to a new page.
+     * The page number can be either absolute (#i) or relative to the current
+     * section (#j).
+     * 
+     * @param template The text template to be parsed (e.g. "Page #i of #N)
+     */
+    private void parseTextTemplate() {
+        ParsedTemplate parsed;
+        synchronized (sParsedTemplates) {
+            parsed = sParsedTemplates.get(mTextTemplate);
+        }
+        if (parsed == null) {
+            parsed = new ParsedTemplate(mTextTemplate);
+            synchronized (sParsedTemplates) {
+                sParsedTemplates.put(mTextTemplate, parsed);
+            }
+        }
+        mTextTemplateFirstPart = parsed.firstPart;
+        mTextTemplateSecondPart = parsed.secondPart;
+        mTemplateUsesSectionPageNumber = parsed.usesSectionPageNumber;
+        mTemplateFirstPartHasPageCount = parsed.firstPartHasPageCount;
+        mTemplateSecondPartHasPageCount = parsed.secondPartHasPageCount;
+        mTemplateFirstPartHasSection = parsed.firstPartHasSection;
+        mTemplateSecondPartHasSection = parsed.secondPartHasSection;
+        mTextRtl = parsed.rtl;
+    }
+
+    /**
+     * The result of splitting a template around its page number placeholder. Instances
+     * are immutable, so they can be shared by all indicators using the same template.
+     */
+    private static final class ParsedTemplate {
+        final String firstPart;
+        final String secondPart;
+        final boolean usesSectionPageNumber;
+        final boolean firstPartHasPageCount;
+        final boolean secondPartHasPageCount;
+        final boolean firstPartHasSection;
+        final boolean secondPartHasSection;
+        final boolean rtl;
+
+        ParsedTemplate(String template) {
+            String placeholder = TEMPLATE_PAGE_NUMBER_PLACEHOLDER;
+            int indexOfPageNumber = template.indexOf(placeholder);
+            if (indexOfPageNumber == -1) {
+                placeholder = TEMPLATE_SECTION_PAGE_NUMBER_PLACEHOLDER;
+                indexOfPageNumber = template.indexOf(placeholder);
+            }
+            if (indexOfPageNumber == -1) {
+                throw new RuntimeException("The template must contain the page number placeholder \"" + TEMPLATE_PAGE_NUMBER_PLACEHOLDER
+                        + "\" or \"" + TEMPLATE_SECTION_PAGE_NUMBER_PLACEHOLDER + "\"");
+            }
+            usesSectionPageNumber = placeholder == TEMPLATE_SECTION_PAGE_NUMBER_PLACEHOLDER;
+            firstPart = template.substring(0, indexOfPageNumber);
+            secondPart = template.substring(indexOfPageNumber + placeholder.length());
+            firstPartHasPageCount = firstPart.contains(TEMPLATE_PAGE_COUNT_PLACEHOLDER);
+            secondPartHasPageCount = secondPart.contains(TEMPLATE_PAGE_COUNT_PLACEHOLDER);
+            firstPartHasSection = hasSectionPlaceholder(firstPart);
+            secondPartHasSection = hasSectionPlaceholder(secondPart);
+            rtl = isRtl(template);
+        }
+    }
+
+    /**
+     * Resolves the paragraph direction of the template (following the first strong
+     * character, as the Unicode bidi algorithm does). This is done once per template: on
+     * every frame we only have to lay out three runs (first part, page number, last
+     * part) in the resolved order. The contents of every run are reordered and shaped
+     * by the platform when drawn.
+     */
+    private static boolean isRtl(String text) {
+        final char[] chars = text.toCharArray();
+        if (!Bidi.requiresBidi(chars, 0, chars.length)) {
+            return false;
+        }
+        return !new Bidi(text, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT).baseIsLeftToRight();
+    }
+
+    /**
+     * Returns true if the template is written in a right-to-left script. In that case the
+     * text runs are laid out from right to left and the buttons are mirrored.
+     */
+    public boolean isTextRtl() {
+        return mTextRtl;
+    }
+
+    private static boolean hasSectionPlaceholder(String templatePart) {
+        return templatePart.contains(TEMPLATE_SECTION_NUMBER_PLACEHOLDER) || templatePart.contains(TEMPLATE_SECTION_PAGE_COUNT_PLACEHOLDER);
+    }
+
+    /**
+     * Updates the two "fixed" parts of the indicator text. The first part is
+     * the one before the page number (e.g. "Page ") and the second part is the
+     * one after (" of #N"). Updating consists simply on replacing the #N part
+     * by the actual page count. So in the example above the outcome would be:
+     * <li>First part: "Page " (unmodified) <li>Second part: " of 20" ("#N"
+     * replaced by "20")
+     */
+    private void updateText() {
+        final String textPageCount = getPageCountText();
+        if (textPageCount == null) {
+            return;
+        }
+        mTextFirstPart = fillTemplatePart(mTextTemplateFirstPart, textPageCount);
+        mTextLastPart = fillTemplatePart(mTextTemplateSecondPart, textPageCount);
+        measureTextParts();
+    }
+
+    /**
+     * Like {@link #updateText()}, but only regenerates (and re-measures) the parts of
+     * the text that actually contain the #N placeholder. Used when the page count changes
+     * but the template does not.
+     */
+    private void updatePageCountText() {
+        updateTextParts(mTemplateFirstPartHasPageCount, mTemplateSecondPartHasPageCount);
+    }
+
+    /**
+     * Like {@link #updatePageCountText()}, but for the parts of the text that contain
+     * the #c or #M placeholders. Used when the current section changes.
+     */
+    private void updateSectionText() {
+        updateTextParts(mTemplateFirstPartHasSection, mTemplateSecondPartHasSection);
+    }
+
+    private void updateTextParts(boolean firstPart, boolean lastPart) {
+        if (mTextFirstPart == null) {
+            updateText();
+            return;
+        }
+        final String textPageCount = getPageCountText();
+        if (textPageCount == null) {
+            return;
+        }
+        if (firstPart) {
+            mTextFirstPart = fillTemplatePart(mTextTemplateFirstPart, textPageCount);
+            mWidthFirstPart = mPaintText.measureText(mTextFirstPart);
+        }
+        if (lastPart) {
+            mTextLastPart = fillTemplatePart(mTextTemplateSecondPart, textPageCount);
+            mWidthLastPart = mPaintText.measureText(mTextLastPart);
+        }
+        mTabularLayoutValid = false;
+    }
+
+    /**
+     * Replaces the #N, #c and #M placeholders of one of the two parts of the template
+     */
+    private String fillTemplatePart(String templatePart, String textPageCount) {
+        String result = templatePart.replace(TEMPLATE_PAGE_COUNT_PLACEHOLDER, textPageCount);
+        if (hasSectionPlaceholder(templatePart)) {
+            result = result.replace(TEMPLATE_SECTION_NUMBER_PLACEHOLDER, formatNumber(mCurrentSection + 1));
+            result = result.replace(TEMPLATE_SECTION_PAGE_COUNT_PLACEHOLDER, formatNumber(getCurrentSectionPageCount()));
+        }
+        return result;
+    }
+
+    private int findSection(int page) {
+        if (mSectionIndex.size() == 0) {
+            return 0;
+        }
+        return mSectionIndex.find(page, mCurrentSection);
+    }
+
+    private int getCurrentSectionPageCount() {
+        final int pageCount = getLogicalPageCount();
+        if (mSectionIndex.size() == 0) {
+            return pageCount;
+        }
+        return mSectionIndex.getPageCount(mCurrentSection, pageCount);
+    }
+
+    /**
+     * Returns the number displayed for the given page, which is either its absolute
+     * number (#i) or its number within its section (#j)
+     */
+    private int getDisplayedPageNumber(int page) {
+        page = getLogicalPage(page);
+        if (!mTemplateUsesSectionPageNumber || mSectionIndex.size() == 0) {
+            return page + 1;
+        }
+        return page - mSectionIndex.getStart(findSection(page)) + 1;
+    }
+
+    /**
+     * Maps a position of the view pager to the page it represents. Both are the same
+     * except in virtual mode, where the logical page is the position modulo the virtual
+     * page count
+     */
+    private int getLogicalPage(int position) {
+        return mVirtualPageCount > 0 ? position % mVirtualPageCount : position;
+    }
+
+    /**
+     * Returns the number of logical pages (see {@link #getLogicalPage(int)})
+     */
+    private int getLogicalPageCount() {
+        if (mVirtualPageCount > 0) {
+            return mVirtualPageCount;
+        }
+        return mViewPager == null ? 0 : mViewPager.getAdapter().getCount();
+    }
+
+    /**
+     * Keeps track of the section which contains the current page. This is called on
+     * every frame, but it only costs a couple of comparisons unless the section changes.
+     */
+    private void updateCurrentSection() {
+        if (mSectionIndex.size() == 0) {
+            return;
+        }
+        final int section = mSectionIndex.find(getLogicalPage(mCurrentPage), mCurrentSection);
+        if (section != mCurrentSection) {
+            mCurrentSection = section;
+            updateSectionText();
+        }
+    }
+
+    /**
+     * Caches the widths of the two "fixed" parts of the text, so that we don't have
+     * to measure them on every frame
+     */
+    private void measureTextParts() {
+        if (mTextFirstPart == null) {
+            return;
+        }
+        mWidthFirstPart = MeasureCache.measureText(mPaintText, mTextFirstPart);
+        mWidthLastPart = MeasureCache.measureText(mPaintText, mTextLastPart);
+        mTabularLayoutValid = false;
+    }
+
+    /**
+     * Must be called whenever the paint used for page numbers changes
+     */
+    private void resetPageNumberTexts() {
+        mCurrentPageNumberText.reset();
+        mNextPageNumberText.reset();
+        mMaxDigitWidth = -1;
+        mTabularLayoutValid = false;
+    }
+
+    /**
+     * Computes the position of the text in tabular digits mode, which doesn't depend on
+     * the page being displayed. The widest digit is only measured when the paint changes.
+     */
+    private void computeTabularLayout() {
+        if (mMaxDigitWidth < 0) {
+            mMaxDigitWidth = measureMaxDigitWidth();
+        }
+        mPageNumberBoxWidth = measureWidestPageNumber(mMaxDigitWidth);
+        mTabularTextLeft = (getWidth() - (mWidthFirstPart + mPageNumberBoxWidth + mWidthLastPart)) / 2;
+        mTabularLayoutValid = true;
+    }
+
+    private float measureMaxDigitWidth() {
+        return MeasureCache.measureMaxDigitWidth(mPaintPageNumberText, mPageNumberFormat.getZeroDigit(), mDigits, mDigitWidths);
+    }
+
+    /**
+     * Returns an upper bound of the width of any page number, given the width of the
+     * widest digit
+     */
+    private float measureWidestPageNumber(float maxDigitWidth) {
+        // There must also be room for the grouping separators of the largest number
+        final int length = mPageNumberFormat.format(getLogicalPageCount(), mPageNumberGrouping, mTabularBuffer);
+        final char groupingSeparator = mPageNumberFormat.getGroupingSeparator();
+        int separators = 0;
+        for (int i = 0; i < length; ++i) {
+            if (mTabularBuffer[i] == groupingSeparator) {
+                ++separators;
+            }
+        }
+        float separatorWidth = 0;
+        if (separators > 0) {
+            mTabularBuffer[0] = groupingSeparator;
+            separatorWidth = mPaintPageNumberText.measureText(mTabularBuffer, 0, 1);
+        }
+        return (length - separators) * maxDigitWidth + separators * separatorWidth;
+    }
+
+    /**
+     * In auto-fit mode, finds the largest text size between the minimum and the maximum
+     * for which the text fits between the buttons, and applies it. The search is a binary
+     * search that measures all the texts at every step, so results are cached by width,
+     * template, number of digits of the page count and style.
+     */
+    private void fitTextSize(int width) {
+        if (!mAutoFitTextSize || mTextFirstPart == null) {
+            return;
+        }
+        final String key = getAutoFitKey(width);
+        Float textSize;
+        synchronized (sAutoFitCache) {
+            textSize = sAutoFitCache.get(key);
+        }
+        if (textSize == null) {
+            float low = Math.min(mMinTextSize, mTextSize);
+            float high = mTextSize;
+            if (!fitsAt(high, width)) {
+                while (high - low > AUTO_FIT_PRECISION) {
+                    final float middle = (low + high) / 2;
+                    if (fitsAt(middle, width)) {
+                        low = middle;
+                    } else {
+                        high = middle;
+                    }
+                }
+                high = low;
+            }
+            textSize = high;
+            synchronized (sAutoFitCache) {
+                sAutoFitCache.put(key, textSize);
+            }
+            // The search leaves the paints with the size of its last probe, so always reapply
+            applyTextSize(textSize);
+            return;
+        }
+        // On a cache hit the paints are untouched, so nothing has to be remeasured if the
+        // fitted size is the current one
+        if (textSize != mPaintText.getTextSize() || textSize != mPaintPageNumberText.getTextSize()) {
+            applyTextSize(textSize);
+        }
+    }
+
+    private boolean fitsAt(float textSize, int width) {
+        mPaintText.setTextSize(textSize);
+        mPaintPageNumberText.setTextSize(textSize);
+        return measureRequiredWidth(false) <= width;
+    }
+
+    /**
+     * Returns the width needed to display the buttons and the text for the widest page
+     * number with the current text size
+     *
+     * @param cached Whether to use the process-wide measure cache. The probes of the
+     *  auto-fit search don't use it, since their sizes are unlikely to be used again.
+     */
+    private float measureRequiredWidth(boolean cached) {
+        final float horizontalPadding = -mPaintText.ascent();
+        float leftButtons = 0;
+        float rightButtons = 0;
+        if (mShowStartEndButtons) {
+            leftButtons += measureButtonLabel(mIconStart, mTextStartButton, cached) + 2 * horizontalPadding;
+            rightButtons += measureButtonLabel(mIconEnd, mTextEndButton, cached) + 2 * horizontalPadding;
+        }
+        if (mShowChangePageButtons) {
+            leftButtons += measureButtonLabel(mIconPrevious, mTextPreviousButton, cached) + 2 * horizontalPadding;
+            rightButtons += measureButtonLabel(mIconNext, mTextNextButton, cached) + 2 * horizontalPadding;
+        }
+        final float maxDigitWidth = cached ? measureMaxDigitWidth() : MeasureCache.measureMaxDigitWidthUncached(
+                mPaintPageNumberText, mPageNumberFormat.getZeroDigit(), mDigits, mDigitWidths);
+        final float textWidth = measureText(mTextFirstPart, cached) + measureText(mTextLastPart, cached)
+                + measureWidestPageNumber(maxDigitWidth);
+        // The text is centered, so it must fit between the widest group of buttons and its mirror
+        return textWidth + 2 * Math.max(leftButtons, rightButtons);
+    }
+
+    private float measureText(String text, boolean cached) {
+        return cached ? MeasureCache.measureText(mPaintText, text) : mPaintText.measureText(text);
+    }
+
+    /**
+     * Returns the width of the content of a button, which is its icon if it has one
+     */
+    private float measureButtonLabel(Drawable icon, String text, boolean cached) {
+        return icon != null ? getButtonIconPixelSize() : measureText(text, cached);
+    }
+
+    private int getButtonIconPixelSize() {
+        if (mButtonIconSize > 0) {
+            return Math.round(mButtonIconSize);
+        }
+        return Math.max(1, Math.round(mPaintText.descent() - mPaintText.ascent()));
+    }
+
+    /**
+     * Looks up the bitmaps of the button icons for the current icon size and color, so
+     * that drawing never rasterises an icon
+     */
+    private void resolveButtonIcons() {
+        final int size = getButtonIconPixelSize();
+        final int color = getButtonIconColor();
+        final Resources res = getResources();
+        mBitmapStart = mIconStart != null ? IconCache.get(mIconStart, size, color, res) : null;
+        mBitmapEnd = mIconEnd != null ? IconCache.get(mIconEnd, size, color, res) : null;
+        mBitmapPrevious = mIconPrevious != null ? IconCache.get(mIconPrevious, size, color, res) : null;
+        mBitmapNext = mIconNext != null ? IconCache.get(mIconNext, size, color, res) : null;
+    }
+
+    /**
+     * Returns the width needed to display everything at the maximum text size. The value
+     * is cached until the style or the number of digits of the page count change, so that
+     * repeated measure passes don't measure any text.
+     */
+    private float getIntrinsicWidth() {
+        if (mIntrinsicWidth < 0) {
+            if (mTextFirstPart == null) {
+                return 0;
+            }
+            final float textSize = mPaintText.getTextSize();
+            mPaintText.setTextSize(mTextSize);
+            mPaintPageNumberText.setTextSize(mTextSize);
+            mIntrinsicWidth = measureRequiredWidth(true);
+            mPaintText.setTextSize(textSize);
+            mPaintPageNumberText.setTextSize(textSize);
+            mIntrinsicPageCountLength = getPageCountLength();
+        }
+        return mIntrinsicWidth;
+    }
+
+    private int getPageCountLength() {
+        return mPageNumberFormat.format(getLogicalPageCount(), mPageNumberGrouping, mTabularBuffer);
+    }
+
+    /**
+     * Must be called whenever something that affects the width of the content changes.
+     * A new layout is only requested if the width of the view depends on its content.
+     */
+    private void onContentWidthChanged() {
+        mIntrinsicWidth = -1;
+        layoutButtons();
+        if (mWidthDependsOnContent) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Must be called whenever the page count changes. Since the intrinsic width accounts for
+     * the widest page number, it only has to be recomputed if the number of digits changes.
+     */
+    private void onPageCountChanged() {
+        if (mIntrinsicWidth >= 0 && getPageCountLength() != mIntrinsicPageCountLength) {
+            onContentWidthChanged();
+        } else {
+            layoutButtons();
+        }
+    }
+
+    private String getAutoFitKey(int width) {
+        final int digits = getPageCountLength();
+        final StringBuilder key = new StringBuilder();
+        key.append(width).append('|').append(mTextTemplate).append('|').append(digits).append('|');
+        key.append(mTextSize).append('|').append(mMinTextSize).append('|').append(mPageNumberTextBold).append('|');
+        key.append(System.identityHashCode(mPaintText.getTypeface())).append('|');
+        key.append(mPageNumberFormat.getZeroDigit()).append(mPageNumberGrouping).append('|');
+        if (mShowStartEndButtons) {
+            key.append(mTextStartButton).append('|').append(mTextEndButton).append('|');
+            key.append(System.identityHashCode(mIconStart)).append('|').append(System.identityHashCode(mIconEnd)).append('|');
+        }
+        if (mShowChangePageButtons) {
+            key.append(mTextPreviousButton).append('|').append(mTextNextButton).append('|');
+            key.append(System.identityHashCode(mIconPrevious)).append('|').append(System.identityHashCode(mIconNext)).append('|');
+        }
+        key.append(mButtonIconSize).append('|');
+        return key.toString();
+    }
+
+    /**
+     * Returns the text that replaces the #N placeholder, or null if it cannot be
+     * determined yet (no page count provider and no view pager)
+     */
+    private String getPageCountText() {
+        switch (mPageCountState) {
+        case PAGE_COUNT_UNKNOWN:
+            return mTextUnknownPageCount;
+        case PAGE_COUNT_AT_LEAST:
+            return formatNumber(mProvidedPageCount) + mTextPartialPageCountSuffix;
+        case PAGE_COUNT_RESOLVED:
+            return formatNumber(mProvidedPageCount);
+        default:
+            if (mViewPager == null) {
+                return null;
+            }
+            return formatNumber(getLogicalPageCount());
+        }
+    }
+
+    private String formatNumber(int number) {
+        return mPageNumberFormat.format(number, mPageNumberGrouping);
+    }
+
+    /**
+     * Called on the UI thread when the page count provider reports a new value
+     */
+    private void onProvidedPageCountChanged(int requestId, int state, int pageCount) {
+        if (requestId != mPageCountRequestId) {
+            // Stale report from a previous provider or a previous refresh
+            return;
+        }
+        if (state == mPageCountState && pageCount == mProvidedPageCount) {
+            return;
+        }
+        mPageCountState = state;
+        mProvidedPageCount = pageCount;
+        if (mSuspended) {
+            mPendingTextUpdate = true;
+            return;
+        }
+        updatePageCountText();
+        onPageCountChanged();
+        invalidate();
+    }
+
+    /**
+     * Forwards the reports of a page count provider to the UI thread
+     */
+    private class PageCountCallback implements PageCountProvider.Callback {
+        private final int mRequestId;
+
+        PageCountCallback(int requestId) {
+            mRequestId = requestId;
+        }
+
+        @Override
+        public void onPageCountUnknown() {
+            post(PAGE_COUNT_UNKNOWN, 0);
+        }
+
+        @Override
+        public void onPageCountAtLeast(int pageCount) {
+            post(PAGE_COUNT_AT_LEAST, pageCount);
+        }
+
+        @Override
+        public void onPageCountResolved(int pageCount) {
+            post(PAGE_COUNT_RESOLVED, pageCount);
+        }
+
+        private void post(final int state, final int pageCount) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onProvidedPageCountChanged(mRequestId, state, pageCount);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of draw operations that were skipped in the last frame because
+     * they would have had no visible effect (fully transparent, beyond the last page or
+     * outside the clip of the canvas)
+     */
+    public int getCulledDrawOpCount() {
+        return mDrawCuller.getFrameCulledCount();
+    }
+
+    /**
+     * Returns the number of draw operations skipped since this view was created
+     * @see #getCulledDrawOpCount()
+     */
+    public long getTotalCulledDrawOpCount() {
+        return mDrawCuller.getTotalCulledCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see android.view.View#onDraw(android.graphics.Canvas)
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (isFocused()) {
+            // Inset by half the stroke so that the whole outline is visible
+            final float inset = mPaintFocus.getStrokeWidth() / 2;
+            canvas.drawRect(inset, inset, getWidth() - inset, getHeight() - inset, mPaintFocus);
+        }
+        mDrawCuller.beginFrame();
+        if (!mAdaptiveQuality) {
+            drawIndicator(canvas);
+            return;
+        }
+        final long start = System.nanoTime();
+        drawIndicator(canvas);
+        if (mFrameCostMonitor.onFrame(start, System.nanoTime() - start, mPageOffset != 0 || mScrubFlinging)) {
+            // Takes effect on the next frame
+            applyQuality();
+        }
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        if (mViewPager == null) {
+            return;
+        }
+        final int count = mViewPager.getAdapter().getCount();
+        if (count == 0) {
+            return;
+        }
+
+        // mCurrentPage is -1 on first start and after orientation changed. If
+        // so, retrieve the correct index from viewpager.
+        if (mCurrentPage == -1 && mViewPager != null) {
+            mCurrentPage = mViewPager.getCurrentItem();
+        }
+
+        // Handle the first time we draw the view, when onMeasure has not been
+        // called yet
+        if (mTextFirstPart == null) {
+            updateText();
+        }
+        updateCurrentSection();
+
+        if (mShowMinimap) {
+            syncMinimapPageCount();
+            mMinimap.draw(canvas, mRectMinimap, getLogicalPage(mCurrentPage), mPaintMinimapMarker);
+        }
+
+        // Draw the main text (e.g. "Page 1 of 20"). The hardest part is drawing
+        // the page
+        // number itself, because of the animated effect in which the current
+        // page fades
+        // out and the next one fades in. In order to implement this effect we
+        // are forced to
+        // draw the text in four "chunks": the first part ("Page "), the current
+        // page
+        // number ("1"), the next page number ("2"), and the last part
+        // (" of 20").
+        // To implement the fade in and fade out animations we simply change the
+        // alpha
+        // of the page number text, relative to the view pager scroll
+
+        // With reduced quality the page number and the buttons switch at half the swipe
+        // instead of cross-fading
+        final boolean reduced = mAdaptiveQuality && mFrameCostMonitor.isReduced();
+        final float currentPageWeight = reduced ? (mPageOffset < 0.5f ? 1 : 0) : 1 - mPageOffset;
+        final float nextPageWeight = 1 - currentPageWeight;
+        final float firstPartWidth = mWidthFirstPart;
+        // Page numbers are only formatted and measured when they change
+        final PageNumberText currentPageNumber = mCurrentPageNumberText;
+        final PageNumberText nextPageNumber = mNextPageNumberText;
+        currentPageNumber.update(getDisplayedPageNumber(mCurrentPage), mPaintPageNumberText, mPageNumberFormat, mPageNumberGrouping);
+        // There is no next page number to draw when the pager is at rest or at the last page
+        final boolean hasNextPage = mVirtualPageCount != 0 || mCurrentPage + 1 < count;
+        final boolean swiping = mPageOffset != 0;
+        if (swiping && hasNextPage) {
+            nextPageNumber.update(getDisplayedPageNumber(mCurrentPage + 1), mPaintPageNumberText, mPageNumberFormat, mPageNumberGrouping);
+        } else {
+            // The next page number is skipped both at rest and at the last page
+            mDrawCuller.cull();
+        }
+        final float currentPageNumberWidth = currentPageNumber.width;
+        final float nextPageNumberWidth = swiping && hasNextPage ? nextPageNumber.width : currentPageNumberWidth;
+        final float pageNumberWidth;
+        float currentX;
+        if (mTabularDigits) {
+            if (!mTabularLayoutValid) {
+                computeTabularLayout();
+            }
+            pageNumberWidth = mPageNumberBoxWidth;
+            currentX = mTabularTextLeft;
+        } else {
+            pageNumberWidth = currentPageWeight * currentPageNumberWidth + nextPageWeight * nextPageNumberWidth;
+            final float totalWidth = firstPartWidth + pageNumberWidth + mWidthLastPart;
+            currentX = (getWidth() - totalWidth) / 2;
+        }
+        // The three runs go from left to right, or from right to left for RTL templates
+        final String leftPart = mTextRtl ? mTextLastPart : mTextFirstPart;
+        final String rightPart = mTextRtl ? mTextFirstPart : mTextLastPart;
+        final float leftPartWidth = mTextRtl ? mWidthLastPart : firstPartWidth;
+        final float textTop = mTextBottom + mPaintText.ascent();
+        final float textBottom = mTextBottom + mPaintText.descent();
+        if (mDrawCuller.accept(canvas, mPaintText, currentX, textTop, currentX + leftPartWidth, textBottom)) {
+            canvas.drawText(leftPart, currentX, mTextBottom, mPaintText);
+        }
+        currentX += leftPartWidth;
+        final float pageNumberCenterX = currentX + pageNumberWidth / 2;
+
+        final int pageNumberAlpha = Color.alpha(mColorPageNumberText);
+        mPaintPageNumberText.setAlpha(pageNumberAlpha);
+        if (!swiping || !hasNextPage || reduced) {
+            final PageNumberText shown = swiping && hasNextPage && nextPageWeight == 1 ? nextPageNumber : currentPageNumber;
+            if (mDrawCuller.accept(canvas, mPaintPageNumberText, pageNumberCenterX - shown.width / 2, textTop,
+                    pageNumberCenterX + shown.width / 2, textBottom)) {
+                canvas.drawText(shown.chars, 0, shown.length, pageNumberCenterX - shown.width / 2, mTextBottom, mPaintPageNumberText);
+            }
+        } else {
+            // Transitions may move the numbers up to one text size away from their resting place
+            final float margin = mPaintPageNumberText.getTextSize();
+            final float halfWidth = Math.max(currentPageNumberWidth, nextPageNumberWidth) / 2 + margin;
+            if (mDrawCuller.accept(canvas, mPaintPageNumberText, pageNumberCenterX - halfWidth, textTop - margin,
+                    pageNumberCenterX + halfWidth, textBottom + margin)) {
+                mPageNumberTransition.draw(canvas, mPaintPageNumberText, pageNumberAlpha, currentPageNumber.chars,
+                        currentPageNumber.length, currentPageNumberWidth, nextPageNumber.chars, nextPageNumber.length,
+                        nextPageNumberWidth, pageNumberCenterX, mTextBottom, mPageOffset);
+            }
+        }
+
+        currentX += pageNumberWidth;
+        final float rightPartWidth = mTextRtl ? firstPartWidth : mWidthLastPart;
+        if (mDrawCuller.accept(canvas, mPaintText, currentX, textTop, currentX + rightPartWidth, textBottom)) {
+            canvas.drawText(rightPart, currentX, mTextBottom, mPaintText);
+        }
+
+        // In virtual mode there are no first and last pages, so buttons never fade out
+        final boolean isFirstPage = mVirtualPageCount == 0 && mCurrentPage == 0;
+        final boolean isLastPage = mVirtualPageCount == 0 && mCurrentPage >= count - 1;
+        final boolean isSecondToLastPage = mVirtualPageCount == 0 && mCurrentPage == count - 2;
+
+        // Draw the "start" and "end" buttons
+        if (mShowStartEndButtons) {
+            final int textStartAlpha = Color.alpha(mColorText);
+            final int textEndAlpha = 0;
+            if (!isFirstPage && mStartDown && mDrawCuller.accept(canvas, mPaintButtonBackground, mRectStart)) {
+                canvas.drawRect(mRectStart, mPaintButtonBackground);
+            }
+            if (!isLastPage && mEndDown && mDrawCuller.accept(canvas, mPaintButtonBackground, mRectEnd)) {
+                canvas.drawRect(mRectEnd, mPaintButtonBackground);
+            }
+            if (isFirstPage) {
+                mPaintText.setAlpha((int) (nextPageWeight * textStartAlpha + currentPageWeight * textEndAlpha));
+            }
+            drawButtonLabel(canvas, mBitmapStart, mTextStartButton, mWidthStartText, mRectStart, mRectStartText);
+            mPaintText.setAlpha(Color.alpha(mColorText));
+            if (!isLastPage) {
+                if (isSecondToLastPage) {
+                    mPaintText.setAlpha((int) (currentPageWeight * textStartAlpha + nextPageWeight * textEndAlpha));
+                }
+                drawButtonLabel(canvas, mBitmapEnd, mTextEndButton, mWidthEndText, mRectEnd, mRectEndText);
+                mPaintText.setAlpha(Color.alpha(mColorText));
+            }
+        }
+
+        
+        // Draw the "next" and "previous" buttons
+        if (mShowChangePageButtons) {
+            final int textStartAlpha = Color.alpha(mColorText);
+            final int textEndAlpha = 0;
+            if (!isFirstPage && mPreviousDown && mDrawCuller.accept(canvas, mPaintButtonBackground, mRectPrevious)) {
+                canvas.drawRect(mRectPrevious, mPaintButtonBackground);
+            } 
+            if (!isLastPage && mNextDown && mDrawCuller.accept(canvas, mPaintButtonBackground, mRectNext)) {
+                canvas.drawRect(mRectNext, mPaintButtonBackground);
+            }
+            if (isFirstPage) {
+                mPaintText.setAlpha((int) (nextPageWeight * textStartAlpha + currentPageWeight * textEndAlpha));
+            }
+            drawButtonLabel(canvas, mBitmapPrevious, mTextPreviousButton, mWidthPreviousText, mRectPrevious, mRectPreviousText);
+            mPaintText.setAlpha(Color.alpha(mColorText));
+            if (!isLastPage) {
+                if (isSecondToLastPage) {
+                    mPaintText.setAlpha((int) (currentPageWeight * textStartAlpha + nextPageWeight * textEndAlpha));
+                }
+                drawButtonLabel(canvas, mBitmapNext, mTextNextButton, mWidthNextText, mRectNext, mRectNextText);
+                mPaintText.setAlpha(Color.alpha(mColorText));
+            }
+        }
+    }
+
+    /**
+     * Draws the icon of a button if it has one, or else its text. Icons are drawn from
+     * their cached bitmaps, with the current alpha of the text paint applied through the
+     * icon paint, so the edge fades never rasterise them again.
+     */
+    private void drawButtonLabel(Canvas canvas, Bitmap icon, String text, float textWidth, Rect rectButton, Rect rectText) {
+        if (icon == null) {
+            if (mDrawCuller.accept(canvas, mPaintText, rectButton)) {
+                canvas.drawText(text, rectButton.centerX() - textWidth / 2, rectText.bottom, mPaintText);
+            }
+            return;
+        }
+        final int textAlpha = Color.alpha(mColorText);
+        mPaintIcon.setAlpha(textAlpha == 0 ? 0 : mPaintText.getAlpha() * 255 / textAlpha);
+        if (!mDrawCuller.accept(canvas, mPaintIcon, rectButton)) {
+            return;
+        }
+        canvas.drawBitmap(icon, rectButton.centerX() - icon.getWidth() / 2, rectText.centerY() - icon.getHeight() / 2, mPaintIcon);
+    }
+
+    @Override
+    public void setViewPager(ViewPager view) {
+        if (mViewPager == view) {
+            return;
+        }
+        // Checked before unbinding, so that a failed rebind leaves the current pager bound
+        if (view.getAdapter() == null) {
+            throw new IllegalStateException("ViewPager does not have adapter instance.");
+        }
+        if (mViewPager != null) {
+            mViewPager.setOnPageChangeListener(null);
+        }
+        mViewPager = view;
+        mViewPager.setOnPageChangeListener(this);
+        mMinimap.clearVisited();
+        markVisited(mViewPager.getCurrentItem());
+        updateText();
+        onContentWidthChanged();
+        invalidate();
+    }
+
+    @Override
+    public void setViewPager(ViewPager view, int initialPosition) {
+        setViewPager(view);
+        setCurrentItem(initialPosition);
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        mTabularLayoutValid = false;
+        if (mSuspended) {
+            mPendingTextUpdate = true;
+            return;
+        }
+        if (mPageCountState == PAGE_COUNT_FROM_ADAPTER) {
+            updatePageCountText();
+        }
+        onPageCountChanged();
+        invalidate();
+    }
+
+    @Override
+    public void setCurrentItem(int item) {
+        if (mViewPager == null) {
+            throw new IllegalStateException("ViewPager has not been bound.");
+        }
+        mViewPager.setCurrentItem(item);
+        mCurrentPage = item;
+        if (mSuspended) {
+            mPendingTextUpdate = true;
+            return;
+        }
         updateText();
         invalidate();
     }
 
     @Override
     public void onPageScrollStateChanged(int state) {
+        if (mSessionRecorder != null) {
+            mSessionRecorder.recordPageScrollStateChanged(state);
+        }
         mScrollState = state;
+        if (state == ViewPager.SCROLL_STATE_IDLE && !mSuspended) {
+            mAccessibilityHelper.announcePage(true);
+        }
 
         if (mListener != null) {
             mListener.onPageScrollStateChanged(state);
@@ -570,9 +2282,17 @@ public class NumericPageIndicator extends View implements PageIndicator {
 
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-        mCurrentPage = position;
-        mPageOffset = positionOffset;
-        invalidate();
+        if (mSessionRecorder != null) {
+            mSessionRecorder.recordPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+        // While scrubbing the indicator shows its own page, not the one of the pager
+        if (!mScrubbing) {
+            mCurrentPage = position;
+            mPageOffset = positionOffset;
+            if (!mSuspended) {
+                invalidate();
+            }
+        }
 
         if (mListener != null) {
             mListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
@@ -581,9 +2301,16 @@ public class NumericPageIndicator extends View implements PageIndicator {
 
     @Override
     public void onPageSelected(int position) {
-        if (mScrollState == ViewPager.SCROLL_STATE_IDLE) {
+        if (mSessionRecorder != null) {
+            mSessionRecorder.recordPageSelected(position);
+        }
+        markVisited(position);
+        if (mScrollState == ViewPager.SCROLL_STATE_IDLE && !mScrubbing) {
             mCurrentPage = position;
-            invalidate();
+            if (!mSuspended) {
+                invalidate();
+                mAccessibilityHelper.announcePage(true);
+            }
         }
 
         if (mListener != null) {
@@ -596,15 +2323,108 @@ public class NumericPageIndicator extends View implements PageIndicator {
         mListener = listener;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        mWindowVisibility = getWindowVisibility();
+        updateSuspended();
+        if (mPageCountRequestInterrupted) {
+            mPageCountRequestInterrupted = false;
+            if (mPageCountProvider != null) {
+                refreshPageCount();
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mAttached = false;
+        updateSuspended();
+        if (mPageCountRequest != null && !mPageCountRequest.isDone()) {
+            // The resolution is restarted if the view is attached again
+            cancelPageCountRequest();
+            mPageCountRequestInterrupted = true;
+        }
+        // Null in edit mode
+        if (mThumbnailPreview != null) {
+            mThumbnailPreview.release();
+            mMinimap.release();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateSuspended();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        // getWindowVisibility() may not reflect the new visibility yet
+        mWindowVisibility = visibility;
+        updateSuspended();
+    }
+
+    /**
+     * Suspends the indicator while it can't be seen: page and page count changes are just
+     * recorded, without updating the text or invalidating, and they are applied in a single
+     * pass when the indicator becomes visible again.
+     */
+    private void updateSuspended() {
+        // isShown() is false if the view or any of its ancestors is not visible
+        final boolean suspended = !mAttached || mWindowVisibility != VISIBLE || !isShown();
+        if (suspended == mSuspended) {
+            return;
+        }
+        mSuspended = suspended;
+        if (suspended) {
+            cancelGestures();
+        } else if (mPendingTextUpdate) {
+            mPendingTextUpdate = false;
+            if (mViewPager != null) {
+                updateText();
+                onPageCountChanged();
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * Cancels any ongoing interaction (pressed buttons, auto-repeat, scrub, fling and
+     * pending navigation), without moving the view pager
+     */
+    private void cancelGestures() {
+        stopAutoRepeat();
+        mPreviousDown = mNextDown = mStartDown = mEndDown = false;
+        abortScrub();
+        if (mAccessibilityHelper != null) {
+            mAccessibilityHelper.cancelAnnouncement();
+        }
+        removeCallbacks(mNavigateRunnable);
+        mNavigationScheduled = false;
+        mPendingTargetPage = -1;
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        final int measuredWidth = MeasureSpec.getSize(widthMeasureSpec);
+        final int widthSpecMode = MeasureSpec.getMode(widthMeasureSpec);
+        mWidthDependsOnContent = widthSpecMode != MeasureSpec.EXACTLY;
+        final int measuredWidth;
+        if (mWidthDependsOnContent) {
+            measuredWidth = resolveSize((int) Math.ceil(getIntrinsicWidth()), widthMeasureSpec);
+        } else {
+            measuredWidth = MeasureSpec.getSize(widthMeasureSpec);
+        }
         float height;
         final int heightSpecMode = MeasureSpec.getMode(heightMeasureSpec);
         if (heightSpecMode == MeasureSpec.EXACTLY) {
             height = MeasureSpec.getSize(heightMeasureSpec);
         } else {
-            mTextHeight = (int) (mPaintText.descent() - mPaintText.ascent());
+            // Use the maximum text size, so that auto-fit never changes the height
+            mTextHeight = (int) ((mPaintText.descent() - mPaintText.ascent()) * mTextSize / mPaintText.getTextSize());
             height = mTextHeight + mPaddingTop + mPaddingBottom;
         }
         final int measuredHeight = (int) height;
@@ -613,15 +2433,32 @@ public class NumericPageIndicator extends View implements PageIndicator {
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        mTabularLayoutValid = false;
+        layoutButtons();
+    }
+
+    /**
+     * Computes the bounds of the buttons. They are computed for a left-to-right layout
+     * and then mirrored if the template is right-to-left.
+     */
+    private void layoutButtons() {
+        final int w = getWidth();
+        final int h = getHeight();
+        if (w == 0 || h == 0) {
+            return;
+        }
+        fitTextSize(w);
+        resolveButtonIcons();
+        mRectMinimap.set(0, h - mMinimapHeight, w, h);
         final float horizontalPadding = -mPaintText.ascent();
         mTextBottom = h - mPaddingBottom - mPaintText.descent();
 
         float leftOffset = 0;
         float rightOffset = 0;
         if (mShowStartEndButtons) {
-            mWidthStartText = mPaintText.measureText(mTextStartButton);
+            mWidthStartText = measureButtonLabel(mIconStart, mTextStartButton, true);
             final float startButtonWidth = mWidthStartText + 2 * horizontalPadding;
-            mWidthEndText = mPaintText.measureText(mTextEndButton);
+            mWidthEndText = measureButtonLabel(mIconEnd, mTextEndButton, true);
             final float endButtonWidth = mWidthEndText + 2 * horizontalPadding;
             mRectStartText.set((int) horizontalPadding, (int) mPaddingTop, (int) startButtonWidth, (int) mTextBottom);
             mRectEndText.set((int) (w - endButtonWidth), (int) mPaddingTop, (int) (w - horizontalPadding), (int) mTextBottom);
@@ -632,20 +2469,187 @@ public class NumericPageIndicator extends View implements PageIndicator {
         }
         
         if (mShowChangePageButtons) {
-            mWidthPreviousText = mPaintText.measureText(mTextPreviousButton);
+            mWidthPreviousText = measureButtonLabel(mIconPrevious, mTextPreviousButton, true);
             final float previousButtonWidth = mWidthPreviousText + 2 * horizontalPadding;
-            mWidthNextText = mPaintText.measureText(mTextNextButton);
+            mWidthNextText = measureButtonLabel(mIconNext, mTextNextButton, true);
             final float nextButtonWidth = mWidthNextText + 2 * horizontalPadding;
             mRectPreviousText.set((int) (horizontalPadding + leftOffset), (int) mPaddingTop, (int) (previousButtonWidth + leftOffset), (int) mTextBottom);
             mRectNextText.set((int) (w - nextButtonWidth - rightOffset), (int) mPaddingTop, (int) (w - horizontalPadding - rightOffset), (int) mTextBottom);
             mRectPrevious.set((int)leftOffset, 0, (int) (leftOffset + previousButtonWidth), h);
             mRectNext.set((int) (w - nextButtonWidth - rightOffset), 0, (int)(w - rightOffset), h);
         }
+
+        if (mTextRtl) {
+            mirror(mRectStart, w);
+            mirror(mRectStartText, w);
+            mirror(mRectEnd, w);
+            mirror(mRectEndText, w);
+            mirror(mRectPrevious, w);
+            mirror(mRectPreviousText, w);
+            mirror(mRectNext, w);
+            mirror(mRectNextText, w);
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        // Null in edit mode
+        if (mAccessibilityHelper != null && mAccessibilityHelper.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * Returns the virtual view (see {@link IndicatorAccessibilityHelper}) at the given
+     * position, or {@link IndicatorAccessibilityHelper#INVALID_ID} if there is none
+     */
+    int getVirtualViewAt(float x, float y) {
+        for (int id = 0; id < IndicatorAccessibilityHelper.VIRTUAL_VIEW_COUNT; ++id) {
+            if (id != IndicatorAccessibilityHelper.VIRTUAL_VIEW_TEXT && isVirtualViewVisible(id)
+                    && getButtonRect(id).contains((int) x, (int) y)) {
+                return id;
+            }
+        }
+        // Whatever is not a button is the text
+        return mViewPager != null ? IndicatorAccessibilityHelper.VIRTUAL_VIEW_TEXT : IndicatorAccessibilityHelper.INVALID_ID;
+    }
+
+    boolean isVirtualViewVisible(int virtualViewId) {
+        switch (virtualViewId) {
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_START:
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_END:
+            return mViewPager != null && mShowStartEndButtons;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_PREVIOUS:
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_NEXT:
+            return mViewPager != null && mShowChangePageButtons;
+        default:
+            return mViewPager != null;
+        }
+    }
+
+    boolean isVirtualViewEnabled(int virtualViewId) {
+        if (mViewPager == null) {
+            return false;
+        }
+        final int count = mViewPager.getAdapter().getCount();
+        final int currentItem = mViewPager.getCurrentItem();
+        switch (virtualViewId) {
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_START:
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_PREVIOUS:
+            return count > 0 && (mVirtualPageCount > 0 || currentItem > 0);
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_NEXT:
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_END:
+            return count > 0 && (mVirtualPageCount > 0 || currentItem < count - 1);
+        default:
+            return true;
+        }
+    }
+
+    void getVirtualViewBounds(int virtualViewId, Rect bounds) {
+        if (virtualViewId != IndicatorAccessibilityHelper.VIRTUAL_VIEW_TEXT) {
+            bounds.set(getButtonRect(virtualViewId));
+            return;
+        }
+        // The text takes the space between the buttons
+        final int w = getWidth();
+        int left = 0;
+        int right = w;
+        for (int id = 0; id < IndicatorAccessibilityHelper.VIRTUAL_VIEW_COUNT; ++id) {
+            if (id == IndicatorAccessibilityHelper.VIRTUAL_VIEW_TEXT || !isVirtualViewVisible(id)) {
+                continue;
+            }
+            final Rect rect = getButtonRect(id);
+            if (rect.centerX() < w / 2) {
+                left = Math.max(left, rect.right);
+            } else {
+                right = Math.min(right, rect.left);
+            }
+        }
+        bounds.set(left, 0, Math.max(left, right), getHeight());
+    }
+
+    CharSequence getVirtualViewText(int virtualViewId) {
+        switch (virtualViewId) {
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_START:
+            return mTextStartButton;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_PREVIOUS:
+            return mTextPreviousButton;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_NEXT:
+            return mTextNextButton;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_END:
+            return mTextEndButton;
+        default:
+            return getAccessibilityText();
+        }
+    }
+
+    boolean performVirtualViewClick(int virtualViewId) {
+        if (!isVirtualViewEnabled(virtualViewId)) {
+            return false;
+        }
+        switch (virtualViewId) {
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_START:
+            openStartPage();
+            return true;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_PREVIOUS:
+            openPreviousPage();
+            return true;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_NEXT:
+            openNextPage();
+            return true;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_END:
+            openEndPage();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private Rect getButtonRect(int virtualViewId) {
+        switch (virtualViewId) {
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_START:
+            return mRectStart;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_PREVIOUS:
+            return mRectPrevious;
+        case IndicatorAccessibilityHelper.VIRTUAL_VIEW_NEXT:
+            return mRectNext;
+        default:
+            return mRectEnd;
+        }
+    }
+
+    /**
+     * Returns the full text for the current page (e.g. "Page 3 of 20"), in logical order
+     */
+    private String getAccessibilityText() {
+        if (mViewPager == null) {
+            return "";
+        }
+        if (mTextFirstPart == null) {
+            updateText();
+        }
+        final int page = mCurrentPage == -1 ? mViewPager.getCurrentItem() : mCurrentPage;
+        if (mAccessibilityText == null || page != mAccessibilityTextPage || mTextFirstPart != mAccessibilityTextFirstPart
+                || mTextLastPart != mAccessibilityTextLastPart) {
+            mAccessibilityTextPage = page;
+            mAccessibilityTextFirstPart = mTextFirstPart;
+            mAccessibilityTextLastPart = mTextLastPart;
+            mAccessibilityText = mTextFirstPart + formatNumber(getDisplayedPageNumber(page)) + mTextLastPart;
+        }
+        return mAccessibilityText;
+    }
+
+    private static void mirror(Rect rect, int width) {
+        rect.set(width - rect.right, rect.top, width - rect.left, rect.bottom);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (!mShowChangePageButtons) {
+        if (mSessionRecorder != null) {
+            mSessionRecorder.recordTouch(event);
+        }
+        if (!mShowChangePageButtons && !mScrubEnabled) {
             return false;
         }
         if ((mViewPager == null) || (mViewPager.getAdapter().getCount() == 0)) {
@@ -657,24 +2661,33 @@ public class NumericPageIndicator extends View implements PageIndicator {
             // See if the pointer is within the bounds one of the buttons
             // In that case, change the state of the button to pressed and
             // repaint
-            if (isEventOnRect(event, mRectPrevious)) {
+            if (mShowChangePageButtons && isEventOnRect(event, mRectPrevious)) {
                 mPreviousDown = true;
+                startAutoRepeat(-1);
                 invalidate();
             }
-            else if (isEventOnRect(event, mRectNext)) {
+            else if (mShowChangePageButtons && isEventOnRect(event, mRectNext)) {
                 mNextDown = true;
+                startAutoRepeat(1);
                 invalidate();
             }
-            else if (isEventOnRect(event, mRectStart)) {
+            else if (mShowStartEndButtons && isEventOnRect(event, mRectStart)) {
                 mStartDown = true;
                 invalidate();
             }
-            else if (isEventOnRect(event, mRectEnd)) {
+            else if (mShowStartEndButtons && isEventOnRect(event, mRectEnd)) {
                 mEndDown = true;
                 invalidate();
             }
+            else if (mScrubEnabled) {
+                startScrubTracking(event);
+            }
             break;
         case MotionEvent.ACTION_MOVE:
+            if (mScrubTracking) {
+                trackScrub(event);
+                break;
+            }
             // See if we've exited the bounds of a pressed button before the
             // pointer was released
             // In that case, change the state of the button to normal and
@@ -682,11 +2695,13 @@ public class NumericPageIndicator extends View implements PageIndicator {
             if (mPreviousDown) {
                 if (!isEventOnRect(event, mRectPrevious)) {
                     mPreviousDown = false;
+                    stopAutoRepeat();
                     invalidate();
                 }
             } else if (mNextDown) {
                 if (!isEventOnRect(event, mRectNext)) {
                     mNextDown = false;
+                    stopAutoRepeat();
                     invalidate();
                 }
             }
@@ -703,13 +2718,22 @@ public class NumericPageIndicator extends View implements PageIndicator {
             }
             break;
         case MotionEvent.ACTION_UP:
+            if (mScrubTracking) {
+                releaseScrub(event);
+                break;
+            }
             // See if we've released the pointer while still inside the pressed
             // button
             // In that case, perform the action associated to the button
+            // (unless it was held long enough to auto-repeat)
             if (mPreviousDown) {
-                openPreviousPage();
+                if (!mAutoRepeating) {
+                    openPreviousPage();
+                }
             } else if (mNextDown) {
-                openNextPage();
+                if (!mAutoRepeating) {
+                    openNextPage();
+                }
             } else if (mStartDown) {
                 openStartPage();
             } else if (mEndDown) {
@@ -717,42 +2741,398 @@ public class NumericPageIndicator extends View implements PageIndicator {
             }
             // Deliberate fall-through
         case MotionEvent.ACTION_CANCEL:
+            if (mScrubTracking) {
+                // An UP has been handled above, so this is a cancel (e.g. a parent took
+                // over the gesture): abort without moving the pager
+                abortScrub();
+                invalidate();
+                break;
+            }
             // After an UP or CANCEL action we change the state of the buttons
             // to normal and repaint
+            stopAutoRepeat();
+            if (mPreviousDown || mNextDown || mStartDown || mEndDown) {
+                mStartDown = mEndDown = mNextDown = mPreviousDown = false;
+                invalidate();
+            }
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Starts tracking a pointer that went down outside the buttons, which might become
+     * a scrub gesture once it moves past the touch slop
+     */
+    private void startScrubTracking(MotionEvent event) {
+        mScrubTracking = true;
+        mScrubDownX = mScrubLastX = event.getX();
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+        if (mScrubFlinging) {
+            // Catch the fling and keep scrubbing from where it was
+            removeCallbacks(mScrubFlingRunnable);
+            mScrubFlinging = false;
+        }
+    }
+
+    private void trackScrub(MotionEvent event) {
+        mVelocityTracker.addMovement(event);
+        final float x = event.getX();
+        if (!mScrubbing) {
+            if (Math.abs(x - mScrubDownX) < mTouchSlop) {
+                return;
+            }
+            mScrubbing = true;
+            mScrubPosition = mViewPager.getCurrentItem();
+            mScrubLastX = x;
+            final ViewParent parent = getParent();
+            if (parent != null) {
+                parent.requestDisallowInterceptTouchEvent(true);
+            }
+        }
+        mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+        final float acceleration = getScrubAcceleration(mVelocityTracker.getXVelocity());
+        final float distance = mTextRtl ? mScrubLastX - x : x - mScrubLastX;
+        setScrubPosition(mScrubPosition + distance / mScrubStepWidth * acceleration);
+        mScrubLastX = x;
+    }
+
+    private void releaseScrub(MotionEvent event) {
+        if (!mScrubbing) {
+            // It was a tap, not a scrub
+            endScrub();
+            return;
+        }
+        mVelocityTracker.addMovement(event);
+        mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+        final float velocity = mTextRtl ? -mVelocityTracker.getXVelocity() : mVelocityTracker.getXVelocity();
+        if (Math.abs(velocity) < mMinimumFlingVelocity) {
+            endScrub();
+            return;
+        }
+        // Fling: keep scrubbing with decreasing speed, and move the pager when it stops
+        mScrubTracking = false;
+        recycleVelocityTracker();
+        mScrubFlinging = true;
+        mScrubFlingVelocity = velocity / mScrubStepWidth * getScrubAcceleration(velocity);
+        mScrubFlingLastTime = SystemClock.uptimeMillis();
+        ViewCompat.postOnAnimation(this, mScrubFlingRunnable);
+    }
+
+    /**
+     * Returns the factor by which scrub distances are multiplied, which grows with the
+     * speed of the finger (in pixels per second) so that fast drags cover many pages
+     */
+    private float getScrubAcceleration(float velocity) {
+        return 1 + Math.abs(velocity) / (mScrubStepWidth * SCRUB_ACCELERATION_VELOCITY);
+    }
+
+    /**
+     * Updates the scrub position, repainting only if the displayed page changes.
+     * @return false if the position had to be clamped to the valid range of pages
+     */
+    private boolean setScrubPosition(double position) {
+        final int lastPage = mViewPager.getAdapter().getCount() - 1;
+        final double clamped = Math.max(0, Math.min(lastPage, position));
+        mScrubPosition = clamped;
+        final int page = (int) Math.round(clamped);
+        if (page != mCurrentPage || mPageOffset != 0) {
+            mCurrentPage = page;
+            mPageOffset = 0;
+            invalidate();
+            mAccessibilityHelper.announcePage(false);
+        }
+        mThumbnailPreview.show(getLogicalPage(page));
+        return clamped == position;
+    }
+
+    private final Runnable mScrubFlingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mScrubFlinging) {
+                return;
+            }
+            final long now = SystemClock.uptimeMillis();
+            final float elapsed = (now - mScrubFlingLastTime) / 1000f;
+            mScrubFlingLastTime = now;
+            final boolean inRange = setScrubPosition(mScrubPosition + mScrubFlingVelocity * elapsed);
+            mScrubFlingVelocity *= Math.max(0, 1 - SCRUB_FLING_FRICTION * elapsed);
+            if (!inRange || Math.abs(mScrubFlingVelocity) < SCRUB_FLING_MIN_VELOCITY) {
+                endScrub();
+            } else {
+                ViewCompat.postOnAnimation(NumericPageIndicator.this, this);
+            }
+        }
+    };
+
+    /**
+     * Ends the scrub gesture (or fling), moving the view pager to the scrubbed page
+     * with a single, non animated, page change
+     */
+    private void endScrub() {
+        final boolean scrubbed = mScrubbing;
+        mScrubTracking = mScrubbing = mScrubFlinging = false;
+        removeCallbacks(mScrubFlingRunnable);
+        recycleVelocityTracker();
+        mThumbnailPreview.dismiss();
+        if (scrubbed && mViewPager != null) {
+            final int target = (int) Math.round(mScrubPosition);
+            if (target != mViewPager.getCurrentItem()) {
+                mViewPager.setCurrentItem(target, false);
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * Ends the scrub gesture (or fling) without moving the view pager
+     */
+    private void abortScrub() {
+        if (mScrubbing) {
+            // Show the page of the pager again instead of the scrubbed one
+            mCurrentPage = -1;
+            mPageOffset = 0;
+        }
+        mScrubTracking = mScrubbing = mScrubFlinging = false;
+        removeCallbacks(mScrubFlingRunnable);
+        recycleVelocityTracker();
+        // Null in edit mode
+        if (mThumbnailPreview != null) {
+            mThumbnailPreview.dismiss();
+        }
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * D-pad left/right (and page up/down) behave like the "previous" and "next"
+     * buttons, and home/end like the "start" and "end" buttons. The buttons are
+     * rendered as pressed while their key is held. Key repeats go through stepPage(),
+     * so however fast they arrive the pager gets at most one page change per frame.
+     */
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (mViewPager == null || mViewPager.getAdapter().getCount() == 0) {
+            return super.onKeyDown(keyCode, event);
+        }
+        // D-pad keys follow the direction of the layout
+        int key = keyCode;
+        if (mTextRtl && keyCode == KeyEvent.KEYCODE_DPAD_LEFT) {
+            key = KeyEvent.KEYCODE_DPAD_RIGHT;
+        } else if (mTextRtl && keyCode == KeyEvent.KEYCODE_DPAD_RIGHT) {
+            key = KeyEvent.KEYCODE_DPAD_LEFT;
+        }
+        switch (key) {
+        case KeyEvent.KEYCODE_DPAD_LEFT:
+        case KeyEvent.KEYCODE_PAGE_UP:
+            if (!stepPage(-1)) {
+                // Let the focus leave the indicator
+                return super.onKeyDown(keyCode, event);
+            }
+            setKeyPressed(mShowChangePageButtons, false);
+            return true;
+        case KeyEvent.KEYCODE_DPAD_RIGHT:
+        case KeyEvent.KEYCODE_PAGE_DOWN:
+            if (!stepPage(1)) {
+                return super.onKeyDown(keyCode, event);
+            }
+            setKeyPressed(false, mShowChangePageButtons);
+            return true;
+        case KeyEvent.KEYCODE_MOVE_HOME:
+            if (event.getRepeatCount() == 0) {
+                openStartPage();
+                mStartDown = mShowStartEndButtons;
+                invalidate();
+            }
+            return true;
+        case KeyEvent.KEYCODE_MOVE_END:
+            if (event.getRepeatCount() == 0) {
+                openEndPage();
+                mEndDown = mShowStartEndButtons;
+                invalidate();
+            }
+            return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        switch (keyCode) {
+        case KeyEvent.KEYCODE_DPAD_LEFT:
+        case KeyEvent.KEYCODE_PAGE_UP:
+        case KeyEvent.KEYCODE_DPAD_RIGHT:
+        case KeyEvent.KEYCODE_PAGE_DOWN:
+        case KeyEvent.KEYCODE_MOVE_HOME:
+        case KeyEvent.KEYCODE_MOVE_END:
             if (mPreviousDown || mNextDown || mStartDown || mEndDown) {
                 mStartDown = mEndDown = mNextDown = mPreviousDown = false;
                 invalidate();
+                return true;
             }
             break;
         }
+        return super.onKeyUp(keyCode, event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (!gainFocus && (mPreviousDown || mNextDown || mStartDown || mEndDown)) {
+            mStartDown = mEndDown = mNextDown = mPreviousDown = false;
+            stopAutoRepeat();
+        }
+        // Shows or hides the focus outline
+        invalidate();
+    }
+
+    private void setKeyPressed(boolean previousDown, boolean nextDown) {
+        if (mPreviousDown != previousDown || mNextDown != nextDown) {
+            mPreviousDown = previousDown;
+            mNextDown = nextDown;
+            invalidate();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * Handles mouse wheels and rotary encoders. Scroll amounts can be fractional, so
+     * they are accumulated until they add up to whole pages.
+     */
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        if (event.getAction() != MotionEventCompat.ACTION_SCROLL || mViewPager == null
+                || mViewPager.getAdapter().getCount() == 0) {
+            return super.onGenericMotionEvent(event);
+        }
+        float delta = mTextRtl ? -event.getAxisValue(MotionEvent.AXIS_HSCROLL) : event.getAxisValue(MotionEvent.AXIS_HSCROLL);
+        if (delta == 0) {
+            delta = -event.getAxisValue(MotionEvent.AXIS_VSCROLL);
+        }
+        if (delta == 0) {
+            delta = -event.getAxisValue(AXIS_SCROLL);
+        }
+        if (delta == 0) {
+            return super.onGenericMotionEvent(event);
+        }
+        mPendingScrollDelta += delta;
+        final int pages = (int) mPendingScrollDelta;
+        if (pages != 0) {
+            mPendingScrollDelta -= pages;
+            if (!stepPage(pages)) {
+                // Clamp to the first or last page
+                final int target = pages < 0 ? 0 : mViewPager.getAdapter().getCount() - 1;
+                stepPage(target - (mPendingTargetPage != -1 ? mPendingTargetPage : mViewPager.getCurrentItem()));
+                mPendingScrollDelta = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Schedules the auto-repeat of the "previous" or "next" button, which kicks in
+     * if the button is held for a long press
+     */
+    private void startAutoRepeat(int direction) {
+        mAutoRepeating = false;
+        mAutoRepeatDirection = direction;
+        mAutoRepeatInterval = AUTO_REPEAT_INITIAL_INTERVAL;
+        removeCallbacks(mAutoRepeatRunnable);
+        postDelayed(mAutoRepeatRunnable, ViewConfiguration.getLongPressTimeout());
+    }
+
+    private void stopAutoRepeat() {
+        removeCallbacks(mAutoRepeatRunnable);
+    }
+
+    private final Runnable mAutoRepeatRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mAutoRepeating = true;
+            if (mViewPager == null || !stepPage(mAutoRepeatDirection)) {
+                // Reached the first or last page
+                return;
+            }
+            postDelayed(this, (long) mAutoRepeatInterval);
+            mAutoRepeatInterval = Math.max(AUTO_REPEAT_MIN_INTERVAL, mAutoRepeatInterval * AUTO_REPEAT_ACCELERATION);
+        }
+    };
+
+    /**
+     * Moves the pending target page by the given number of pages. Steps are coalesced:
+     * the view pager is asked to scroll to the pending target at most once per frame,
+     * so that holding or repeatedly tapping a button never queues overlapping smooth
+     * scrolls.
+     * @return false if the target would be out of range, in which case nothing is done
+     */
+    private boolean stepPage(int delta) {
+        final int base = mPendingTargetPage != -1 ? mPendingTargetPage : mViewPager.getCurrentItem();
+        final int target = base + delta;
+        if (target < 0 || target >= mViewPager.getAdapter().getCount()) {
+            return false;
+        }
+        mPendingTargetPage = target;
+        if (!mNavigationScheduled) {
+            mNavigationScheduled = true;
+            ViewCompat.postOnAnimation(this, mNavigateRunnable);
+        }
         return true;
     }
 
+    private final Runnable mNavigateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mNavigationScheduled = false;
+            final int target = mPendingTargetPage;
+            mPendingTargetPage = -1;
+            if (target != -1 && mViewPager != null && target != mViewPager.getCurrentItem()) {
+                mViewPager.setCurrentItem(target, true);
+            }
+        }
+    };
+
     private void openStartPage() {
         int count = mViewPager.getAdapter().getCount();
         if (count == 0) {
             Log.w(TAG, "Trying to open start page when page count is 0");
             return;
         }
+        mPendingTargetPage = -1;
+        if (mVirtualPageCount > 0) {
+            // Go to the first page of the current cycle or of the next one, whichever is closer
+            final int currentPage = mViewPager.getCurrentItem();
+            final int logicalPage = getLogicalPage(currentPage);
+            int target = currentPage - logicalPage;
+            if (mVirtualPageCount - logicalPage < logicalPage && target + mVirtualPageCount < count) {
+                target += mVirtualPageCount;
+            }
+            mViewPager.setCurrentItem(target, true);
+            return;
+        }
         mViewPager.setCurrentItem(0, true);
     }
 
     private void openPreviousPage() {
-        int currentPage = mViewPager.getCurrentItem();
-        if (currentPage == 0) {
+        if (!stepPage(-1)) {
             Log.w(TAG, "Trying to open previous page when current page is 0");
-            return;
         }
-        mViewPager.setCurrentItem(currentPage - 1, true);
     }
 
     private void openNextPage() {
-        int currentPage = mViewPager.getCurrentItem();
-        if (currentPage == mViewPager.getAdapter().getCount() - 1) {
+        if (!stepPage(1)) {
             Log.w(TAG, "Trying to open next page when current page is already the last one");
-            return;
         }
-        mViewPager.setCurrentItem(currentPage + 1, true);
     }
     
     private void openEndPage() {
@@ -761,6 +3141,18 @@ public class NumericPageIndicator extends View implements PageIndicator {
             Log.w(TAG, "Trying to open end page when page count is 0");
             return;
         }
+        mPendingTargetPage = -1;
+        if (mVirtualPageCount > 0) {
+            // Go to the last page of the current cycle or of the previous one, whichever is closer
+            final int currentPage = mViewPager.getCurrentItem();
+            final int logicalPage = getLogicalPage(currentPage);
+            int target = currentPage - logicalPage + mVirtualPageCount - 1;
+            if (logicalPage + 1 < mVirtualPageCount - 1 - logicalPage && target - mVirtualPageCount >= 0) {
+                target -= mVirtualPageCount;
+            }
+            mViewPager.setCurrentItem(Math.min(target, count - 1), true);
+            return;
+        }
         mViewPager.setCurrentItem(count - 1, true);
     }
 
@@ -774,7 +3166,9 @@ public class NumericPageIndicator extends View implements PageIndicator {
         SavedState savedState = (SavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
         mCurrentPage = savedState.currentPage;
-        requestLayout();
+        // A page change never changes the size of the view
+        updateText();
+        invalidate();
     }
 
     @Override
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Rolls the digits of the page number like an odometer. Only the digits that change
+ * are animated (for example, from 1299 to 1300 the "1" stays still and "299" rolls
+ * up into "300").
+ * <p>
+ * The leading digits that don't change are drawn as a single run of text whose width
+ * is cached until they change, so the per-frame cost doesn't depend on the number of
+ * digits that stay still.
+ */
+public class OdometerTransition extends PageNumberTransition {
+    private final char[] mCachedPrefix = new char[PageNumberFormat.MAX_LENGTH];
+    private int mCachedPrefixLength = -1;
+    private float mCachedPrefixWidth;
+    private float mCachedTextSize;
+    private Typeface mCachedTypeface;
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, int alpha, char[] current, int currentLength, float currentWidth,
+            char[] next, int nextLength, float nextWidth, float centerX, float baseline, float offset) {
+        // Columns are only comparable if both numbers have the same number of digits
+        int prefixLength = 0;
+        if (currentLength == nextLength) {
+            while (prefixLength < currentLength && current[prefixLength] == next[prefixLength]) {
+                ++prefixLength;
+            }
+        }
+        final float prefixWidth = getPrefixWidth(paint, current, prefixLength);
+
+        final float width = currentWidth + (nextWidth - currentWidth) * offset;
+        final float left = centerX - width / 2;
+        if (prefixLength > 0) {
+            canvas.drawText(current, 0, prefixLength, left, baseline, paint);
+        }
+
+        // The changing digits roll up inside a window the height of one line
+        final float top = baseline + paint.ascent();
+        final float bottom = baseline + paint.descent();
+        final float rollDistance = bottom - top;
+        final float suffixLeft = left + prefixWidth;
+        final int saveCount = canvas.save();
+        canvas.clipRect(suffixLeft, top, suffixLeft + Math.max(currentWidth, nextWidth) - prefixWidth, bottom);
+        paint.setAlpha((int) ((1 - offset) * alpha));
+        canvas.drawText(current, prefixLength, currentLength - prefixLength, suffixLeft, baseline - offset * rollDistance, paint);
+        paint.setAlpha((int) (offset * alpha));
+        canvas.drawText(next, prefixLength, nextLength - prefixLength, suffixLeft, baseline + (1 - offset) * rollDistance, paint);
+        paint.setAlpha(alpha);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private float getPrefixWidth(Paint paint, char[] digits, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        boolean cached = length == mCachedPrefixLength && paint.getTextSize() == mCachedTextSize
+                && paint.getTypeface() == mCachedTypeface;
+        for (int i = 0; cached && i < length; ++i) {
+            cached = digits[i] == mCachedPrefix[i];
+        }
+        if (!cached) {
+            System.arraycopy(digits, 0, mCachedPrefix, 0, length);
+            mCachedPrefixLength = length;
+            mCachedTextSize = paint.getTextSize();
+            mCachedTypeface = paint.getTypeface();
+            mCachedPrefixWidth = paint.measureText(digits, 0, length);
+        }
+        return mCachedPrefixWidth;
+    }
+}
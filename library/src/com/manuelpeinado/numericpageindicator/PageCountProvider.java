@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+/**
+ * Supplies the page count displayed by the #N placeholder when it is not known
+ * synchronously (e.g. the total number of results of a server-paginated search).
+ * <p>
+ * {@link #resolvePageCount(Callback)} is invoked on a background thread, so it is
+ * allowed to block. While the count is being resolved the indicator displays a
+ * placeholder text in place of #N. If the count is no longer needed (the count is
+ * refreshed, the provider is replaced or the indicator is detached from its window)
+ * the thread is interrupted, so blocking calls should be interruptible.
+ */
+public interface PageCountProvider {
+
+    /**
+     * Resolves the page count, reporting progress through the given callback. This
+     * method is called on a background thread. The callback can be invoked any number
+     * of times (for example to report successive lower bounds) until
+     * {@link Callback#onPageCountResolved(int)} is called.
+     *
+     * @param callback The callback used to report the page count. It can be invoked from
+     *  any thread
+     */
+    void resolvePageCount(Callback callback);
+
+    /**
+     * Receives the page count as it is being resolved by a {@link PageCountProvider}
+     */
+    public interface Callback {
+        /**
+         * The page count is not known yet
+         */
+        void onPageCountUnknown();
+
+        /**
+         * The page count is not known yet, but it is at least the given value
+         */
+        void onPageCountAtLeast(int pageCount);
+
+        /**
+         * The page count is known exactly. No further updates are expected after this
+         */
+        void onPageCountResolved(int pageCount);
+    }
+}
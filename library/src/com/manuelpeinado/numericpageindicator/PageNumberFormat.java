@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Formats page numbers according to the conventions of a locale (native digits and
+ * digit grouping) without allocating memory. The locale data is only looked up once
+ * per locale; after that, formatting a number costs the same as formatting it with
+ * ASCII digits.
+ */
+final class PageNumberFormat {
+    /** Enough room for the largest int with a separator every two digits */
+    static final int MAX_LENGTH = 16;
+    private static final HashMap<Locale, PageNumberFormat> sCache = new HashMap<Locale, PageNumberFormat>();
+    private final char mZeroDigit;
+    private final char mGroupingSeparator;
+    private final int mPrimaryGroupingSize;
+    private final int mSecondaryGroupingSize;
+    private final char[] mBuffer = new char[MAX_LENGTH];
+
+    private PageNumberFormat(Locale locale) {
+        final DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+        mZeroDigit = symbols.getZeroDigit();
+        mGroupingSeparator = symbols.getGroupingSeparator();
+        int primaryGroupingSize = 3;
+        int secondaryGroupingSize = 3;
+        final NumberFormat numberFormat = NumberFormat.getIntegerInstance(locale);
+        if (numberFormat instanceof DecimalFormat) {
+            // The pattern tells us about secondary grouping (e.g. "#,##,##0" in India),
+            // which DecimalFormat itself doesn't expose
+            final String pattern = ((DecimalFormat) numberFormat).toPattern();
+            final int end = pattern.indexOf('.') == -1 ? pattern.length() : pattern.indexOf('.');
+            final int last = pattern.lastIndexOf(',', end);
+            if (last != -1) {
+                primaryGroupingSize = end - last - 1;
+                final int previous = pattern.lastIndexOf(',', last - 1);
+                secondaryGroupingSize = previous == -1 ? primaryGroupingSize : last - previous - 1;
+            } else {
+                primaryGroupingSize = secondaryGroupingSize = 0;
+            }
+        }
+        mPrimaryGroupingSize = primaryGroupingSize;
+        mSecondaryGroupingSize = secondaryGroupingSize;
+    }
+
+    /**
+     * Returns the (shared) format for the given locale
+     */
+    static PageNumberFormat forLocale(Locale locale) {
+        synchronized (sCache) {
+            PageNumberFormat result = sCache.get(locale);
+            if (result == null) {
+                result = new PageNumberFormat(locale);
+                sCache.put(locale, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the digit used for zero in this locale. The other digits follow it.
+     */
+    char getZeroDigit() {
+        return mZeroDigit;
+    }
+
+    char getGroupingSeparator() {
+        return mGroupingSeparator;
+    }
+
+    /**
+     * Writes a non-negative number into the given buffer, which must have room for
+     * {@link #MAX_LENGTH} characters
+     * @param grouping Whether to insert grouping separators
+     * @return The number of characters written
+     */
+    int format(int value, boolean grouping, char[] buffer) {
+        // Write the number backwards, from the least significant digit
+        int position = MAX_LENGTH;
+        int digits = 0;
+        int groupSize = mPrimaryGroupingSize;
+        do {
+            if (grouping && groupSize > 0 && digits == groupSize) {
+                buffer[--position] = mGroupingSeparator;
+                digits = 0;
+                groupSize = mSecondaryGroupingSize;
+            }
+            buffer[--position] = (char) (mZeroDigit + value % 10);
+            value /= 10;
+            ++digits;
+        } while (value != 0);
+        final int length = MAX_LENGTH - position;
+        System.arraycopy(buffer, position, buffer, 0, length);
+        return length;
+    }
+
+    /**
+     * Like {@link #format(int, boolean, char[])}, but returns a string. Only meant to be
+     * used when the text of the template is regenerated, not on every frame.
+     */
+    String format(int value, boolean grouping) {
+        synchronized (mBuffer) {
+            return new String(mBuffer, 0, format(value, grouping, mBuffer));
+        }
+    }
+}
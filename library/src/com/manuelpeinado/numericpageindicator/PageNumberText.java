@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Paint;
+
+/**
+ * Text of a page number, kept in a reusable char buffer together with its width, so
+ * that it only needs to be formatted and measured when the number changes
+ */
+final class PageNumberText {
+    final char[] chars = new char[PageNumberFormat.MAX_LENGTH];
+    int length;
+    float width;
+    private int mValue = -1;
+
+    /**
+     * Sets the number to be displayed, formatting and measuring it only if it changed
+     * since the last call
+     */
+    void update(int value, Paint paint, PageNumberFormat format, boolean grouping) {
+        if (value == mValue) {
+            return;
+        }
+        mValue = value;
+        length = format.format(value, grouping, chars);
+        width = paint.measureText(chars, 0, length);
+    }
+
+    /**
+     * Forces the number to be formatted and measured again in the next update (e.g.
+     * because the text size or the locale changed)
+     */
+    void reset() {
+        mValue = -1;
+    }
+}
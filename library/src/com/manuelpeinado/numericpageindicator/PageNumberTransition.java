@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Animates the page number while the user swipes from one page to the next. The
+ * indicator calls {@link #draw} on every frame of the swipe, so implementations must
+ * not allocate memory in it.
+ * <p>
+ * The library provides {@link FadeTransition} (the default), {@link SlideTransition}
+ * and {@link OdometerTransition}.
+ */
+public abstract class PageNumberTransition {
+
+    /**
+     * Draws the page number during a swipe.
+     * 
+     * @param canvas The canvas to draw into
+     * @param paint The paint used for page numbers. Its alpha can be modified, but it
+     *  must be set back to the given alpha before returning
+     * @param alpha The alpha of the page number when fully visible
+     * @param current The digits of the number of the current page
+     * @param currentLength The number of digits of the current page number
+     * @param currentWidth The width of the current page number
+     * @param next The digits of the number of the next page
+     * @param nextLength The number of digits of the next page number
+     * @param nextWidth The width of the next page number
+     * @param centerX The horizontal center of the page number
+     * @param baseline The baseline of the page number
+     * @param offset How far the swipe has progressed, from 0 (current page) to 1 (next page)
+     */
+    public abstract void draw(Canvas canvas, Paint paint, int alpha, char[] current, int currentLength, float currentWidth,
+            char[] next, int nextLength, float nextWidth, float centerX, float baseline, float offset);
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+/**
+ * Immutable snapshot of the values published to an indicator from other threads. Every
+ * publication creates a new snapshot with a higher version which contains the latest
+ * value of every property, so the UI thread only has to look at the most recent one.
+ * Properties which have never been published are {@link #UNSET} or null.
+ * <p>
+ * Every property also records the version in which it was last published, so that the
+ * UI thread applies each property posted since its last run, even if the posted value
+ * equals the previously applied one (the view may have changed by other means since).
+ */
+final class PublishedState {
+    static final int UNSET = -1;
+    static final PublishedState EMPTY = new PublishedState(0, UNSET, 0, UNSET, 0, null, 0, null, 0, null, 0);
+
+    final long version;
+    final int currentItem;
+    final long currentItemVersion;
+    final int pageCount;
+    final long pageCountVersion;
+    final String textTemplate;
+    final long textTemplateVersion;
+    final Integer textColor;
+    final long textColorVersion;
+    final Integer pageNumberTextColor;
+    final long pageNumberTextColorVersion;
+
+    private PublishedState(long version, int currentItem, long currentItemVersion, int pageCount, long pageCountVersion,
+            String textTemplate, long textTemplateVersion, Integer textColor, long textColorVersion,
+            Integer pageNumberTextColor, long pageNumberTextColorVersion) {
+        this.version = version;
+        this.currentItem = currentItem;
+        this.currentItemVersion = currentItemVersion;
+        this.pageCount = pageCount;
+        this.pageCountVersion = pageCountVersion;
+        this.textTemplate = textTemplate;
+        this.textTemplateVersion = textTemplateVersion;
+        this.textColor = textColor;
+        this.textColorVersion = textColorVersion;
+        this.pageNumberTextColor = pageNumberTextColor;
+        this.pageNumberTextColorVersion = pageNumberTextColorVersion;
+    }
+
+    PublishedState withCurrentItem(int currentItem) {
+        final long v = version + 1;
+        return new PublishedState(v, currentItem, v, pageCount, pageCountVersion, textTemplate, textTemplateVersion,
+                textColor, textColorVersion, pageNumberTextColor, pageNumberTextColorVersion);
+    }
+
+    PublishedState withPageCount(int pageCount) {
+        final long v = version + 1;
+        return new PublishedState(v, currentItem, currentItemVersion, pageCount, v, textTemplate, textTemplateVersion,
+                textColor, textColorVersion, pageNumberTextColor, pageNumberTextColorVersion);
+    }
+
+    PublishedState withTextTemplate(String textTemplate) {
+        final long v = version + 1;
+        return new PublishedState(v, currentItem, currentItemVersion, pageCount, pageCountVersion, textTemplate, v,
+                textColor, textColorVersion, pageNumberTextColor, pageNumberTextColorVersion);
+    }
+
+    PublishedState withTextColor(int textColor) {
+        final long v = version + 1;
+        return new PublishedState(v, currentItem, currentItemVersion, pageCount, pageCountVersion, textTemplate,
+                textTemplateVersion, textColor, v, pageNumberTextColor, pageNumberTextColorVersion);
+    }
+
+    PublishedState withPageNumberTextColor(int pageNumberTextColor) {
+        final long v = version + 1;
+        return new PublishedState(v, currentItem, currentItemVersion, pageCount, pageCountVersion, textTemplate,
+                textTemplateVersion, textColor, textColorVersion, pageNumberTextColor, v);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.util.Arrays;
+
+/**
+ * Maps page indices to sections (e.g. chapters). Sections are described by the
+ * sorted array of the indices of their first pages, so that looking up the section
+ * of a page is a binary search that doesn't allocate.
+ */
+final class SectionIndex {
+    private static final int[] EMPTY = new int[0];
+    private int[] mStarts = EMPTY;
+    private int mSize;
+
+    /**
+     * Replaces the section starts. The array is copied, since later appends write into
+     * the internal array and the caller's one may be a reused buffer.
+     *
+     * @param starts Strictly increasing page indices, the first one being 0
+     * @param size Number of valid entries in the array
+     */
+    void set(int[] starts, int size) {
+        checkStarts(starts, 0, size, -1);
+        mStarts = new int[size];
+        System.arraycopy(starts, 0, mStarts, 0, size);
+        mSize = size;
+    }
+
+    /**
+     * Adds sections at the end of the index, growing the internal array if needed
+     */
+    void append(int[] newStarts, int offset, int count) {
+        checkStarts(newStarts, offset, count, mSize == 0 ? -1 : mStarts[mSize - 1]);
+        if (mSize + count > mStarts.length) {
+            final int[] starts = new int[Math.max(mSize + count, mStarts.length * 2)];
+            System.arraycopy(mStarts, 0, starts, 0, mSize);
+            mStarts = starts;
+        }
+        System.arraycopy(newStarts, offset, mStarts, mSize, count);
+        mSize += count;
+    }
+
+    void clear() {
+        mStarts = EMPTY;
+        mSize = 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int getStart(int section) {
+        return mStarts[section];
+    }
+
+    /**
+     * Returns the number of pages of the given section. The last section extends up
+     * to the end of the document.
+     */
+    int getPageCount(int section, int totalPageCount) {
+        final int end = section + 1 < mSize ? mStarts[section + 1] : totalPageCount;
+        return end - mStarts[section];
+    }
+
+    /**
+     * Returns the section which contains the given page
+     *
+     * @param page The page index
+     * @param hint A section likely to contain the page (typically the result of the
+     *  previous lookup), which is checked before doing the binary search
+     */
+    int find(int page, int hint) {
+        if (hint >= 0 && hint < mSize && mStarts[hint] <= page && (hint + 1 == mSize || page < mStarts[hint + 1])) {
+            return hint;
+        }
+        final int index = Arrays.binarySearch(mStarts, 0, mSize, page);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    private static void checkStarts(int[] starts, int offset, int count, int previous) {
+        if (count > 0 && previous == -1 && starts[offset] != 0) {
+            throw new IllegalArgumentException("The first section must start at page 0");
+        }
+        for (int i = offset; i < offset + count; ++i) {
+            if (starts[i] <= previous) {
+                throw new IllegalArgumentException("Section starts must be strictly increasing");
+            }
+            previous = starts[i];
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * Records the inputs received by a {@link NumericPageIndicator} (view pager callbacks
+ * and touch events), so that sessions in which users experienced problems can be
+ * reproduced with a {@link SessionReplayer}. See
+ * {@link NumericPageIndicator#setSessionRecorder(SessionRecorder)}.
+ * <p>
+ * Inputs are stored as fixed-size binary records in a ring buffer allocated up front,
+ * so recording doesn't allocate and only the most recent inputs are kept. A recording
+ * can be exported with {@link #toByteArray()} or {@link #writeTo(OutputStream)}.
+ */
+public final class SessionRecorder {
+    static final int MAGIC = 0x4E504952; // "NPIR"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    /** Type, time and three arguments, all of them 4 bytes long */
+    static final int RECORD_SIZE = 20;
+
+    static final int TYPE_PAGE_SCROLLED = 1;
+    static final int TYPE_PAGE_SELECTED = 2;
+    static final int TYPE_PAGE_SCROLL_STATE_CHANGED = 3;
+    static final int TYPE_TOUCH = 4;
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+    /** Index of the next record to write */
+    private int mNext;
+    private int mSize;
+    private long mStartTime = -1;
+
+    /**
+     * @param capacity The maximum number of inputs kept. When it is reached, the oldest
+     *  inputs are overwritten.
+     */
+    public SessionRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        mCapacity = capacity;
+        mBuffer = ByteBuffer.allocate(capacity * RECORD_SIZE);
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the number of inputs currently recorded
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized void clear() {
+        mNext = 0;
+        mSize = 0;
+        mStartTime = -1;
+    }
+
+    void recordPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        record(TYPE_PAGE_SCROLLED, SystemClock.uptimeMillis(), position, Float.floatToIntBits(positionOffset), positionOffsetPixels);
+    }
+
+    void recordPageSelected(int position) {
+        record(TYPE_PAGE_SELECTED, SystemClock.uptimeMillis(), position, 0, 0);
+    }
+
+    void recordPageScrollStateChanged(int state) {
+        record(TYPE_PAGE_SCROLL_STATE_CHANGED, SystemClock.uptimeMillis(), state, 0, 0);
+    }
+
+    void recordTouch(MotionEvent event) {
+        record(TYPE_TOUCH, event.getEventTime(), event.getAction(), Float.floatToIntBits(event.getX()), Float.floatToIntBits(event.getY()));
+    }
+
+    private synchronized void record(int type, long time, int arg0, int arg1, int arg2) {
+        if (mStartTime == -1) {
+            mStartTime = time;
+        }
+        // Times are stored relative to the first input, which fits in an int for weeks
+        mBuffer.position(mNext * RECORD_SIZE);
+        mBuffer.putInt(type);
+        mBuffer.putInt((int) (time - mStartTime));
+        mBuffer.putInt(arg0);
+        mBuffer.putInt(arg1);
+        mBuffer.putInt(arg2);
+        mNext = (mNext + 1) % mCapacity;
+        mSize = Math.min(mSize + 1, mCapacity);
+    }
+
+    /**
+     * Returns the recorded inputs, from the oldest to the newest, in the format read by
+     * {@link SessionReplayer}
+     */
+    public synchronized byte[] toByteArray() {
+        final byte[] result = new byte[HEADER_SIZE + mSize * RECORD_SIZE];
+        final ByteBuffer out = ByteBuffer.wrap(result);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(mSize);
+        final byte[] records = mBuffer.array();
+        final int oldest = mSize < mCapacity ? 0 : mNext;
+        final int firstChunk = Math.min(mSize, mCapacity - oldest);
+        out.put(records, oldest * RECORD_SIZE, firstChunk * RECORD_SIZE);
+        out.put(records, 0, (mSize - firstChunk) * RECORD_SIZE);
+        // Once the buffer has wrapped the oldest record kept is not the first input, so
+        // times are rebased to it; otherwise a replay would start with a long pause
+        if (mSize > 0) {
+            final int timeOffset = 4;
+            final int baseTime = out.getInt(HEADER_SIZE + timeOffset);
+            for (int i = 0; i < mSize; ++i) {
+                final int index = HEADER_SIZE + i * RECORD_SIZE + timeOffset;
+                out.putInt(index, out.getInt(index) - baseTime);
+            }
+        }
+        return result;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(toByteArray());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.nio.ByteBuffer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * Feeds the inputs captured by a {@link SessionRecorder} back into a
+ * {@link NumericPageIndicator}, either as fast as possible (for benchmarks) or with
+ * their original timing (to reproduce a problem as the user experienced it).
+ * <p>
+ * Touch events are replayed with their original relative times even when replaying
+ * as fast as possible, so that velocities (and thus scrub flings) are the same as in
+ * the recorded session. Touches can move the view pager bound to the indicator, so
+ * for faithful replays it should have the same number of pages as the recorded one.
+ * All the methods of this class must be called on the UI thread.
+ */
+public final class SessionReplayer {
+    private final ByteBuffer mRecording;
+    private final int mInputCount;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private NumericPageIndicator mIndicator;
+    private Runnable mOnFinished;
+    private long mBaseTime;
+    private long mDownTime;
+    private int mNextInput;
+
+    /**
+     * @param recording A recording obtained with {@link SessionRecorder#toByteArray()}
+     */
+    public SessionReplayer(byte[] recording) {
+        mRecording = ByteBuffer.wrap(recording);
+        if (recording.length < SessionRecorder.HEADER_SIZE || mRecording.getInt(0) != SessionRecorder.MAGIC) {
+            throw new IllegalArgumentException("Not a session recording");
+        }
+        if (mRecording.getInt(4) != SessionRecorder.VERSION) {
+            throw new IllegalArgumentException("Unsupported recording version " + mRecording.getInt(4));
+        }
+        mInputCount = mRecording.getInt(8);
+        if (recording.length != SessionRecorder.HEADER_SIZE + mInputCount * SessionRecorder.RECORD_SIZE) {
+            throw new IllegalArgumentException("Truncated session recording");
+        }
+    }
+
+    public int getInputCount() {
+        return mInputCount;
+    }
+
+    /**
+     * Feeds all the inputs to the given indicator, without waiting between them
+     */
+    public void replay(NumericPageIndicator indicator) {
+        cancel();
+        mBaseTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < mInputCount; ++i) {
+            dispatch(indicator, i);
+        }
+    }
+
+    /**
+     * Feeds the inputs to the given indicator with their original timing. Returns
+     * immediately; the replay runs on the UI thread.
+     *
+     * @param onFinished Called once all the inputs have been replayed. Can be null
+     */
+    public void replayInRealTime(NumericPageIndicator indicator, Runnable onFinished) {
+        cancel();
+        mIndicator = indicator;
+        mOnFinished = onFinished;
+        mNextInput = 0;
+        mBaseTime = SystemClock.uptimeMillis();
+        mHandler.post(mReplayRunnable);
+    }
+
+    /**
+     * Stops a replay started with {@link #replayInRealTime(NumericPageIndicator, Runnable)}
+     */
+    public void cancel() {
+        mHandler.removeCallbacks(mReplayRunnable);
+        mIndicator = null;
+        mOnFinished = null;
+    }
+
+    private final Runnable mReplayRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final long now = SystemClock.uptimeMillis();
+            // Dispatch every input which is due, then sleep until the next one
+            while (mNextInput < mInputCount && getTime(mNextInput) <= now) {
+                dispatch(mIndicator, mNextInput++);
+            }
+            if (mNextInput < mInputCount) {
+                mHandler.postAtTime(this, getTime(mNextInput));
+                return;
+            }
+            final Runnable onFinished = mOnFinished;
+            mIndicator = null;
+            mOnFinished = null;
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+    };
+
+    private int getOffset(int input) {
+        return SessionRecorder.HEADER_SIZE + input * SessionRecorder.RECORD_SIZE;
+    }
+
+    /**
+     * Returns the time at which the given input must be replayed
+     */
+    private long getTime(int input) {
+        return mBaseTime + mRecording.getInt(getOffset(input) + 4);
+    }
+
+    private void dispatch(NumericPageIndicator indicator, int input) {
+        final int offset = getOffset(input);
+        final int type = mRecording.getInt(offset);
+        final long time = getTime(input);
+        final int arg0 = mRecording.getInt(offset + 8);
+        final int arg1 = mRecording.getInt(offset + 12);
+        final int arg2 = mRecording.getInt(offset + 16);
+        switch (type) {
+        case SessionRecorder.TYPE_PAGE_SCROLLED:
+            indicator.onPageScrolled(arg0, Float.intBitsToFloat(arg1), arg2);
+            break;
+        case SessionRecorder.TYPE_PAGE_SELECTED:
+            indicator.onPageSelected(arg0);
+            break;
+        case SessionRecorder.TYPE_PAGE_SCROLL_STATE_CHANGED:
+            indicator.onPageScrollStateChanged(arg0);
+            break;
+        case SessionRecorder.TYPE_TOUCH:
+            if ((arg0 & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_DOWN) {
+                mDownTime = time;
+            }
+            final MotionEvent event = MotionEvent.obtain(mDownTime, time, arg0, Float.intBitsToFloat(arg1), Float.intBitsToFloat(arg2), 0);
+            indicator.dispatchTouchEvent(event);
+            event.recycle();
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown input type " + type + " in session recording");
+        }
+    }
+}
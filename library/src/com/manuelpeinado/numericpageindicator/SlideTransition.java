@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Slides the current page number out to the left while the next one slides in from
+ * the right, fading them at the same time
+ */
+public class SlideTransition extends PageNumberTransition {
+
+    @Override
+    public void draw(Canvas canvas, Paint paint, int alpha, char[] current, int currentLength, float currentWidth,
+            char[] next, int nextLength, float nextWidth, float centerX, float baseline, float offset) {
+        final float distance = paint.getTextSize();
+        paint.setAlpha((int) ((1 - offset) * alpha));
+        canvas.drawText(current, 0, currentLength, centerX - currentWidth / 2 - offset * distance, baseline, paint);
+        paint.setAlpha((int) (offset * alpha));
+        canvas.drawText(next, 0, nextLength, centerX - nextWidth / 2 + (1 - offset) * distance, baseline, paint);
+        paint.setAlpha(alpha);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import android.graphics.Bitmap;
+
+/**
+ * Supplies the thumbnails displayed by the indicator while the user scrubs through the
+ * pages, so that pages can be previewed without being instantiated by the view pager.
+ * See {@link NumericPageIndicator#setThumbnailLoader(ThumbnailLoader)}.
+ */
+public interface ThumbnailLoader {
+
+    /**
+     * Loads (e.g. decodes from disk) the thumbnail of the given page. This method is
+     * called on a background thread. If the user scrubs past the page before the thumbnail
+     * is loaded the thread is interrupted, so implementations can give up early by checking
+     * {@link Thread#isInterrupted()}.
+     *
+     * @param page The page index
+     * @param width The width of the preview, in pixels
+     * @param height The height of the preview, in pixels
+     * @return The thumbnail, or null if there is none
+     */
+    Bitmap loadThumbnail(int page, int width, int height);
+
+    /**
+     * Called on the UI thread when a thumbnail is no longer used by the indicator (because
+     * it was evicted from the cache or the loader was replaced), so that it can be recycled
+     * or reused
+     */
+    void onThumbnailEvicted(int page, Bitmap thumbnail);
+}
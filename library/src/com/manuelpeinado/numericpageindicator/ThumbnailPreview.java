@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.PopupWindow;
+
+/**
+ * Floating preview of the page being scrubbed to, displayed above the indicator.
+ * Thumbnails are loaded on a background thread by a {@link ThumbnailLoader} and kept
+ * in an LRU cache bounded by their size in bytes. Only the thumbnail of the page
+ * currently being previewed is requested: pages which the user scrubs past are
+ * cancelled.
+ * <p>
+ * All the methods of this class must be called on the UI thread.
+ */
+final class ThumbnailPreview {
+    private static final String TAG = "ThumbnailPreview";
+    private static final int PREVIEW_BACKGROUND_COLOR = 0x80000000;
+    /**
+     * Threads are created on demand (and die when idle), so that a loader which blocks
+     * doesn't stall the thumbnails of other indicators. Requests are cancelled on release
+     */
+    private static final ExecutorService sLoadExecutor = Executors.newCachedThreadPool();
+
+    private final View mAnchor;
+    private final Handler mHandler;
+    private final int mWidth;
+    private final int mHeight;
+    private final int[] mAnchorLocation = new int[2];
+    private ThumbnailLoader mLoader;
+    private ThumbnailCache mCache;
+    private PopupWindow mPopup;
+    private ImageView mImageView;
+    /** Page being previewed, or -1 if the preview is not being shown */
+    private int mPage = -1;
+    private Future<?> mRequest;
+    private int mRequestPage = -1;
+    private Bitmap mDisplayedThumbnail;
+    /** A thumbnail evicted while it was displayed, whose eviction is reported once it is replaced */
+    private Bitmap mEvictedThumbnail;
+    private int mEvictedPage;
+
+    ThumbnailPreview(View anchor, Handler handler, int width, int height, int maxCacheBytes) {
+        mAnchor = anchor;
+        mHandler = handler;
+        mWidth = width;
+        mHeight = height;
+        mCache = new ThumbnailCache(maxCacheBytes);
+    }
+
+    ThumbnailLoader getLoader() {
+        return mLoader;
+    }
+
+    /**
+     * Replaces the loader. Thumbnails loaded by the previous one are evicted.
+     */
+    void setLoader(ThumbnailLoader loader) {
+        if (loader == mLoader) {
+            return;
+        }
+        dismiss();
+        mCache.evictAll();
+        releaseDisplayedThumbnail();
+        mLoader = loader;
+    }
+
+    int getMaxCacheBytes() {
+        return mCache.maxSize();
+    }
+
+    void setMaxCacheBytes(int maxCacheBytes) {
+        mCache.evictAll();
+        mCache = new ThumbnailCache(maxCacheBytes);
+    }
+
+    /**
+     * Shows the preview of the given page, loading its thumbnail if it's not in the cache
+     */
+    void show(int page) {
+        if (mLoader == null || page == mPage) {
+            return;
+        }
+        mPage = page;
+        final Bitmap thumbnail = mCache.get(page);
+        if (thumbnail != null) {
+            cancelRequest();
+            display(thumbnail);
+        } else if (page != mRequestPage) {
+            cancelRequest();
+            mRequestPage = page;
+            mRequest = sLoadExecutor.submit(new LoadTask(mLoader, page));
+        }
+        showPopup();
+    }
+
+    void dismiss() {
+        mPage = -1;
+        cancelRequest();
+        if (mPopup != null && mPopup.isShowing()) {
+            mPopup.dismiss();
+        }
+    }
+
+    /**
+     * Dismisses the preview and evicts all the thumbnails. Must be called when the
+     * indicator is detached from its window.
+     */
+    void release() {
+        dismiss();
+        mCache.evictAll();
+        releaseDisplayedThumbnail();
+    }
+
+    private void cancelRequest() {
+        if (mRequest != null) {
+            mRequest.cancel(true);
+            mRequest = null;
+        }
+        mRequestPage = -1;
+    }
+
+    private void showPopup() {
+        if (mPopup == null) {
+            mImageView = new ImageView(mAnchor.getContext());
+            mImageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+            mImageView.setBackgroundColor(PREVIEW_BACKGROUND_COLOR);
+            mPopup = new PopupWindow(mImageView, mWidth, mHeight, false);
+            mPopup.setTouchable(false);
+            mPopup.setClippingEnabled(false);
+        }
+        if (mPopup.isShowing() || mAnchor.getWindowToken() == null) {
+            return;
+        }
+        mAnchor.getLocationInWindow(mAnchorLocation);
+        final int x = mAnchorLocation[0] + (mAnchor.getWidth() - mWidth) / 2;
+        final int y = mAnchorLocation[1] - mHeight;
+        mPopup.showAtLocation(mAnchor, Gravity.NO_GRAVITY, x, y);
+    }
+
+    private void display(Bitmap thumbnail) {
+        if (thumbnail == mDisplayedThumbnail) {
+            return;
+        }
+        mDisplayedThumbnail = thumbnail;
+        if (mImageView != null) {
+            mImageView.setImageBitmap(thumbnail);
+        }
+        if (mEvictedThumbnail != null && mEvictedThumbnail != thumbnail) {
+            final Bitmap evicted = mEvictedThumbnail;
+            mEvictedThumbnail = null;
+            mLoader.onThumbnailEvicted(mEvictedPage, evicted);
+        }
+    }
+
+    private void releaseDisplayedThumbnail() {
+        mDisplayedThumbnail = null;
+        if (mImageView != null) {
+            mImageView.setImageBitmap(null);
+        }
+        if (mEvictedThumbnail != null) {
+            final Bitmap evicted = mEvictedThumbnail;
+            mEvictedThumbnail = null;
+            mLoader.onThumbnailEvicted(mEvictedPage, evicted);
+        }
+    }
+
+    /**
+     * Called on the UI thread when a thumbnail has been loaded
+     */
+    private void onThumbnailLoaded(ThumbnailLoader loader, int page, Bitmap thumbnail) {
+        if (loader != mLoader) {
+            // Loaded by a loader which has been replaced since
+            loader.onThumbnailEvicted(page, thumbnail);
+            return;
+        }
+        if (page == mRequestPage) {
+            mRequest = null;
+            mRequestPage = -1;
+        }
+        if (mCache.sizeOf(page, thumbnail) > mCache.maxSize()) {
+            // Putting it in the cache would evict it right away, so it's displayed uncached
+            // and its eviction is reported once it is replaced
+            if (page == mPage) {
+                display(thumbnail);
+                mEvictedThumbnail = thumbnail;
+                mEvictedPage = page;
+            } else {
+                loader.onThumbnailEvicted(page, thumbnail);
+            }
+            return;
+        }
+        // Even if the page is no longer being previewed the thumbnail is worth caching
+        mCache.put(page, thumbnail);
+        if (page == mPage) {
+            display(thumbnail);
+        }
+    }
+
+    private final class LoadTask implements Runnable {
+        private final ThumbnailLoader mTaskLoader;
+        private final int mTaskPage;
+
+        LoadTask(ThumbnailLoader loader, int page) {
+            mTaskLoader = loader;
+            mTaskPage = page;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap thumbnail;
+            try {
+                thumbnail = mTaskLoader.loadThumbnail(mTaskPage, mWidth, mHeight);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Thumbnail loader failed", e);
+                return;
+            }
+            if (thumbnail == null) {
+                return;
+            }
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onThumbnailLoaded(mTaskLoader, mTaskPage, thumbnail);
+                }
+            });
+        }
+    }
+
+    private final class ThumbnailCache extends LruCache<Integer, Bitmap> {
+        ThumbnailCache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(Integer page, Bitmap thumbnail) {
+            return thumbnail.getRowBytes() * thumbnail.getHeight();
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, Integer page, Bitmap oldThumbnail, Bitmap newThumbnail) {
+            if (oldThumbnail == newThumbnail) {
+                return;
+            }
+            if (oldThumbnail == mDisplayedThumbnail) {
+                // Still on screen, so it can't be recycled yet
+                mEvictedThumbnail = oldThumbnail;
+                mEvictedPage = page;
+                return;
+            }
+            mLoader.onThumbnailEvicted(page, oldThumbnail);
+        }
+    }
+}
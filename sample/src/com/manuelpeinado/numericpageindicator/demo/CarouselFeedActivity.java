@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import android.os.Bundle;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+
+/**
+ * A scrolling feed of carousels, each one with its own indicator. Rows are recycled, so
+ * indicators are constantly rebound to new adapters while the feed scrolls.
+ */
+public class CarouselFeedActivity extends StressTestActivity {
+    private static final int CAROUSEL_COUNT = 100;
+    private final int[] currentItems = new int[CAROUSEL_COUNT];
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stress_feed);
+        ListView listView = (ListView) findViewById(android.R.id.list);
+        listView.setAdapter(new CarouselAdapter());
+    }
+
+    private class CarouselAdapter extends BaseAdapter {
+        @Override
+        public int getCount() {
+            return CAROUSEL_COUNT;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(final int position, View convertView, ViewGroup parent) {
+            View row = convertView;
+            if (row == null) {
+                row = getLayoutInflater().inflate(R.layout.item_carousel, parent, false);
+            }
+            ViewPager viewPager = (ViewPager) row.findViewById(R.id.pager);
+            NumericPageIndicator pageIndicator = (NumericPageIndicator) row.findViewById(R.id.pageIndicator);
+            // Remember the page of the carousel that is scrolled out of view
+            Integer previousPosition = (Integer) row.getTag();
+            if (previousPosition != null) {
+                currentItems[previousPosition] = viewPager.getCurrentItem();
+            }
+            row.setTag(position);
+            // Carousels have different page counts, from 5 to 1000
+            viewPager.setAdapter(new MyPagerAdapter(position % 3 == 0 ? 1000 : 5 + position % 20));
+            viewPager.setCurrentItem(currentItems[position], false);
+            if (convertView == null) {
+                pageIndicator.setViewPager(viewPager);
+            } else {
+                pageIndicator.notifyDataSetChanged();
+            }
+            // The indicator still shows the page of the previous row. The pager is
+            // already there, so this only updates the indicator
+            pageIndicator.setCurrentItem(currentItems[position]);
+            return row;
+        }
+    }
+}
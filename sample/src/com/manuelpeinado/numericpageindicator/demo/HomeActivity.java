@@ -33,7 +33,11 @@ public class HomeActivity extends SherlockListActivity {
             new ActivityInfo(StylingInThemeActivity.class, R.string.activity_title_styling_in_theme),
             new ActivityInfo(StylingInLayoutActivity.class, R.string.activity_title_styling_in_layout),
             new ActivityInfo(StylingProgrammaticallyActivity.class, R.string.activity_title_styling_programmatically),
-            new ActivityInfo(ButtonsInLandscapeActivity.class, R.string.activity_title_buttons_in_landscape));
+            new ActivityInfo(ButtonsInLandscapeActivity.class, R.string.activity_title_buttons_in_landscape),
+            new ActivityInfo(HugeAdapterActivity.class, R.string.activity_title_huge_adapter),
+            new ActivityInfo(CarouselFeedActivity.class, R.string.activity_title_carousel_feed),
+            new ActivityInfo(RestyleLoopActivity.class, R.string.activity_title_restyle_loop),
+            new ActivityInfo(SoakTestActivity.class, R.string.activity_title_soak_test));
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
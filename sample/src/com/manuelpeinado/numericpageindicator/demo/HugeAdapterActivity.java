@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import android.os.Bundle;
+import android.support.v4.view.ViewPager;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+
+/**
+ * An indicator bound to an adapter with ten million pages
+ */
+public class HugeAdapterActivity extends StressTestActivity {
+    private static final int PAGE_COUNT = 10000000;
+    private ViewPager viewPager;
+    private NumericPageIndicator pageIndicator;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stress_single);
+
+        viewPager = (ViewPager) findViewById(R.id.pager);
+        viewPager.setAdapter(new MyPagerAdapter(PAGE_COUNT));
+        pageIndicator = (NumericPageIndicator) findViewById(R.id.pageIndicator);
+        pageIndicator.setViewPager(viewPager, PAGE_COUNT / 2);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+
+/**
+ * Indicator that records how long it takes to draw itself and how many times it is
+ * invalidated. The counters are shared by all instances, so that the HUD can show the
+ * totals of screens with many indicators. They are only accessed from the UI thread.
+ */
+public class InstrumentedNumericPageIndicator extends NumericPageIndicator {
+    private static int drawCount;
+    private static long drawNanos;
+    private static long maxDrawNanos;
+    private static int invalidateCount;
+    /** Not reset by the HUD, for long-running measurements */
+    private static long totalDrawCount;
+    private static long totalDrawNanos;
+
+    public InstrumentedNumericPageIndicator(Context context) {
+        super(context);
+    }
+
+    public InstrumentedNumericPageIndicator(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long start = System.nanoTime();
+        super.onDraw(canvas);
+        long duration = System.nanoTime() - start;
+        ++drawCount;
+        drawNanos += duration;
+        maxDrawNanos = Math.max(maxDrawNanos, duration);
+        ++totalDrawCount;
+        totalDrawNanos += duration;
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        ++invalidateCount;
+    }
+
+    static int getDrawCount() {
+        return drawCount;
+    }
+
+    static long getDrawNanos() {
+        return drawNanos;
+    }
+
+    static long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    static int getInvalidateCount() {
+        return invalidateCount;
+    }
+
+    static long getTotalDrawCount() {
+        return totalDrawCount;
+    }
+
+    static long getTotalDrawNanos() {
+        return totalDrawNanos;
+    }
+
+    static void resetCounters() {
+        drawCount = 0;
+        drawNanos = 0;
+        maxDrawNanos = 0;
+        invalidateCount = 0;
+    }
+}
@@ -31,9 +31,19 @@ public class MyPagerAdapter extends PagerAdapter {
         Color.rgb(128, 128, 192),
     };
     
+    private final int count;
+
+    public MyPagerAdapter() {
+        this(20);
+    }
+
+    public MyPagerAdapter(int count) {
+        this.count = count;
+    }
+
     @Override
     public int getCount() {
-        return 20;
+        return count;
     }
 
     @Override
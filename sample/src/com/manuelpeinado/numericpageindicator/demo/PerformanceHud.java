@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import java.util.Locale;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Overlay which shows, once per second, the draw time of the indicators of the screen
+ * (see {@link InstrumentedNumericPageIndicator}), how many times they were invalidated
+ * and how much memory the UI thread allocated.
+ */
+public class PerformanceHud {
+    private static final long UPDATE_INTERVAL = 1000;
+    private final TextView textView;
+    private final Handler handler = new Handler();
+    private boolean visible;
+    private boolean running;
+    private long lastUpdateTime;
+    private long lastAllocSize;
+
+    private final Runnable updateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            update();
+            handler.postDelayed(this, UPDATE_INTERVAL);
+        }
+    };
+
+    public PerformanceHud(TextView textView) {
+        this.textView = textView;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        textView.setVisibility(visible ? View.VISIBLE : View.GONE);
+        updateRunning();
+    }
+
+    public void toggle() {
+        setVisible(!visible);
+    }
+
+    /**
+     * Must be called from the onResume method of the activity
+     */
+    public void onResume() {
+        running = true;
+        updateRunning();
+    }
+
+    /**
+     * Must be called from the onPause method of the activity
+     */
+    public void onPause() {
+        running = false;
+        updateRunning();
+    }
+
+    private void updateRunning() {
+        handler.removeCallbacks(updateRunnable);
+        if (running && visible) {
+            Debug.startAllocCounting();
+            InstrumentedNumericPageIndicator.resetCounters();
+            lastUpdateTime = System.nanoTime();
+            lastAllocSize = Debug.getThreadAllocSize();
+            textView.setText(R.string.hud_waiting);
+            handler.postDelayed(updateRunnable, UPDATE_INTERVAL);
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private void update() {
+        long now = System.nanoTime();
+        float seconds = (now - lastUpdateTime) / 1e9f;
+        long allocSize = Debug.getThreadAllocSize();
+        int draws = InstrumentedNumericPageIndicator.getDrawCount();
+        float averageMillis = draws == 0 ? 0 : InstrumentedNumericPageIndicator.getDrawNanos() / 1e6f / draws;
+        float maxMillis = InstrumentedNumericPageIndicator.getMaxDrawNanos() / 1e6f;
+        textView.setText(String.format(Locale.US, textView.getContext().getString(R.string.hud_format),
+                draws / seconds, averageMillis, maxMillis,
+                InstrumentedNumericPageIndicator.getInvalidateCount() / seconds,
+                (allocSize - lastAllocSize) / 1024f / seconds));
+        InstrumentedNumericPageIndicator.resetCounters();
+        lastUpdateTime = now;
+        lastAllocSize = allocSize;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import android.graphics.Color;
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.view.ViewPager;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+
+/**
+ * Restyles the indicator on every frame, cycling through templates, colors, text sizes
+ * and button configurations, while the pages advance on their own
+ */
+public class RestyleLoopActivity extends StressTestActivity {
+    private static final long FRAME_INTERVAL = 16;
+    private static final String[] TEMPLATES = { "Page #i of #N", "#i/#N", "Page: #i", "#i of #N pages" };
+    private static final int[] COLORS = {
+        Color.WHITE, Color.argb(128, 255, 255, 255), Color.YELLOW, Color.CYAN,
+    };
+    private ViewPager viewPager;
+    private NumericPageIndicator pageIndicator;
+    private final Handler handler = new Handler();
+    private int frame;
+
+    private final Runnable restyleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            restyle();
+            handler.postDelayed(this, FRAME_INTERVAL);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stress_single);
+
+        viewPager = (ViewPager) findViewById(R.id.pager);
+        viewPager.setAdapter(new MyPagerAdapter(1000));
+        pageIndicator = (NumericPageIndicator) findViewById(R.id.pageIndicator);
+        pageIndicator.setViewPager(viewPager);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        handler.post(restyleRunnable);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(restyleRunnable);
+    }
+
+    private void restyle() {
+        ++frame;
+        final float scale = getResources().getDisplayMetrics().density;
+        pageIndicator.setTextTemplate(TEMPLATES[frame % TEMPLATES.length]);
+        pageIndicator.setTextColor(COLORS[frame % COLORS.length]);
+        pageIndicator.setPageNumberTextColor(COLORS[(frame + 1) % COLORS.length]);
+        pageIndicator.setPageNumberTextBold(frame % 2 == 0);
+        pageIndicator.setTextSize((int) ((14 + frame % 8) * scale + 0.5f));
+        pageIndicator.setShowChangePageButtons(frame % 16 < 12);
+        pageIndicator.setShowStartEndButtons(frame % 32 < 16);
+        if (frame % 30 == 0) {
+            viewPager.setCurrentItem((viewPager.getCurrentItem() + 1) % viewPager.getAdapter().getCount());
+        }
+    }
+}
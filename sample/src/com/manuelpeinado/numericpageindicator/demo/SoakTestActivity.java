@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.support.v4.view.ViewPager;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+
+/**
+ * Long-running soak test. It feeds the indicator simulated scroll frames against a
+ * ten-million-page adapter, and periodically rebinds it to fresh view pagers (and
+ * adapters), changes its template and toggles its buttons.
+ * <p>
+ * Every sample period it forces a garbage collection and checks that the heap doesn't
+ * grow, that replaced view pagers are collected and that the average draw time doesn't
+ * drift. The run stops at the first failure, which is shown on screen and logged.
+ */
+public class SoakTestActivity extends StressTestActivity {
+    private static final String TAG = "SoakTest";
+    private static final long TICK_INTERVAL = 16;
+    /** Simulated scroll frames fed to the indicator per tick (it draws at most once per tick) */
+    private static final int FRAMES_PER_TICK = 10;
+    private static final int FRAMES_PER_PAGE = 40;
+    private static final int HUGE_PAGE_COUNT = 10000000;
+    private static final int REBIND_INTERVAL = 3000;
+    private static final int TEMPLATE_INTERVAL = 1000;
+    private static final int BUTTONS_INTERVAL = 500;
+    private static final int SAMPLE_INTERVAL = 30000;
+    /** Samples taken before the baseline, while caches and the JIT warm up */
+    private static final int WARM_UP_SAMPLES = 2;
+    private static final long MAX_HEAP_GROWTH = 4 * 1024 * 1024;
+    /** Replaced pagers still reachable after a collection (a couple can be held by pending messages) */
+    private static final int MAX_RETAINED_PAGERS = 2;
+    private static final float MAX_DRAW_TIME_DRIFT = 2;
+    private static final String[] TEMPLATES = { "Page #i of #N", "#i/#N", "Page: #i", "#i of #N pages" };
+
+    private final Handler handler = new Handler();
+    private final List<WeakReference<ViewPager>> replacedPagers = new ArrayList<WeakReference<ViewPager>>();
+    private ViewGroup pagerContainer;
+    private ViewPager viewPager;
+    private NumericPageIndicator pageIndicator;
+    private TextView statusView;
+    private long frame;
+    private int samples;
+    private long baselineHeap;
+    private float baselineDrawMillis;
+    private long lastDrawCount;
+    private long lastDrawNanos;
+    private long lastAllocCount;
+    private boolean failed;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Allocation counting can be stopped by the HUD, so make sure it is on
+            Debug.startAllocCounting();
+            for (int i = 0; i < FRAMES_PER_TICK && !failed; ++i) {
+                step();
+            }
+            if (!failed) {
+                handler.postDelayed(this, TICK_INTERVAL);
+            }
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_soak_test);
+        pagerContainer = (ViewGroup) findViewById(R.id.pagerContainer);
+        pageIndicator = (NumericPageIndicator) findViewById(R.id.pageIndicator);
+        statusView = (TextView) findViewById(R.id.soakStatus);
+        rebind();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (!failed) {
+            handler.post(tickRunnable);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(tickRunnable);
+    }
+
+    private void step() {
+        ++frame;
+        // Simulates a swipe from page to page, one frame at a time
+        int position = (int) (frame / FRAMES_PER_PAGE % viewPager.getAdapter().getCount());
+        int phase = (int) (frame % FRAMES_PER_PAGE);
+        if (phase == 0) {
+            pageIndicator.onPageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+        }
+        float offset = (float) phase / FRAMES_PER_PAGE;
+        pageIndicator.onPageScrolled(position, offset, (int) (offset * pageIndicator.getWidth()));
+        if (phase == FRAMES_PER_PAGE - 1) {
+            pageIndicator.onPageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE);
+            pageIndicator.onPageSelected((position + 1) % viewPager.getAdapter().getCount());
+        }
+
+        if (frame % REBIND_INTERVAL == 0) {
+            rebind();
+        }
+        if (frame % TEMPLATE_INTERVAL == 0) {
+            pageIndicator.setTextTemplate(TEMPLATES[(int) (frame / TEMPLATE_INTERVAL % TEMPLATES.length)]);
+        }
+        if (frame % BUTTONS_INTERVAL == 0) {
+            long toggle = frame / BUTTONS_INTERVAL;
+            pageIndicator.setShowChangePageButtons(toggle % 2 == 0);
+            pageIndicator.setShowStartEndButtons(toggle % 4 < 2);
+        }
+        if (frame % SAMPLE_INTERVAL == 0) {
+            sample();
+        }
+    }
+
+    /**
+     * Replaces the view pager with a new one, with a new adapter, and binds the indicator to it
+     */
+    private void rebind() {
+        if (viewPager != null) {
+            pagerContainer.removeView(viewPager);
+            replacedPagers.add(new WeakReference<ViewPager>(viewPager));
+        }
+        viewPager = new ViewPager(this);
+        // Alternates between a huge adapter and a small one
+        boolean huge = frame / REBIND_INTERVAL % 2 == 0;
+        viewPager.setAdapter(new MyPagerAdapter(huge ? HUGE_PAGE_COUNT : 20));
+        pagerContainer.addView(viewPager, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        pageIndicator.setViewPager(viewPager);
+    }
+
+    private void sample() {
+        ++samples;
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        int retainedPagers = countRetainedPagers();
+        long drawCount = InstrumentedNumericPageIndicator.getTotalDrawCount() - lastDrawCount;
+        long drawNanos = InstrumentedNumericPageIndicator.getTotalDrawNanos() - lastDrawNanos;
+        float drawMillis = drawCount == 0 ? 0 : drawNanos / 1e6f / drawCount;
+        lastDrawCount = InstrumentedNumericPageIndicator.getTotalDrawCount();
+        lastDrawNanos = InstrumentedNumericPageIndicator.getTotalDrawNanos();
+        long allocCount = Debug.getThreadAllocCount();
+        long allocations = allocCount - lastAllocCount;
+        lastAllocCount = allocCount;
+
+        if (samples == WARM_UP_SAMPLES) {
+            baselineHeap = heap;
+            baselineDrawMillis = drawMillis;
+        }
+        String failure = null;
+        if (samples > WARM_UP_SAMPLES) {
+            if (heap > baselineHeap + MAX_HEAP_GROWTH) {
+                failure = "heap grew by " + (heap - baselineHeap) / 1024 + " KB";
+            } else if (retainedPagers > MAX_RETAINED_PAGERS) {
+                failure = retainedPagers + " replaced view pagers were not collected";
+            } else if (baselineDrawMillis > 0 && drawMillis > baselineDrawMillis * MAX_DRAW_TIME_DRIFT) {
+                failure = String.format(Locale.US, "draw time drifted from %.3f ms to %.3f ms", baselineDrawMillis, drawMillis);
+            }
+        }
+        String status = String.format(Locale.US, getString(R.string.soak_status_format), frame, heap / 1024,
+                retainedPagers, drawMillis, allocations);
+        if (failure != null) {
+            failed = true;
+            handler.removeCallbacks(tickRunnable);
+            status = getString(R.string.soak_failed, failure) + "\n" + status;
+            Log.e(TAG, "Soak test failed after " + frame + " frames: " + failure);
+        }
+        statusView.setText(status);
+    }
+
+    /**
+     * Returns the number of replaced view pagers which are still reachable, forgetting
+     * the ones which have been collected
+     */
+    private int countRetainedPagers() {
+        int count = 0;
+        for (Iterator<WeakReference<ViewPager>> it = replacedPagers.iterator(); it.hasNext();) {
+            if (it.next().get() == null) {
+                it.remove();
+            } else {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
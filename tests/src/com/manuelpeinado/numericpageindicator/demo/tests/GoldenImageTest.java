@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo.tests;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.v4.view.ViewPager;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.manuelpeinado.numericpageindicator.NumericPageIndicator;
+import com.manuelpeinado.numericpageindicator.demo.BasicUsageActivity;
+import com.manuelpeinado.numericpageindicator.demo.MyPagerAdapter;
+import com.manuelpeinado.numericpageindicator.demo.R;
+
+/**
+ * Renders {@link NumericPageIndicator} to bitmaps across a matrix of styles, templates,
+ * page counts and swipe offsets, and compares every frame pixel by pixel with a golden
+ * image from {@code assets/goldens}. This is what makes rendering optimizations safe:
+ * they must not change a single pixel.
+ * <p>
+ * Text rasterization differs between devices, so the goldens are only valid for the
+ * emulator image they were recorded on. To record them, run the suite with
+ * {@code -e recordGoldens true}: missing goldens are then written to the external files
+ * directory of the sample ({@code Android/data/<sample package>/files/goldens}), from
+ * where they are pulled into {@code tests/assets/goldens}. Frames that don't match are
+ * written there too, with an {@code -actual} suffix, and the draw time of each frame is
+ * written to {@code timings.csv}.
+ */
+public class GoldenImageTest extends ActivityInstrumentationTestCase2<BasicUsageActivity> {
+    private static final String TAG = "GoldenImageTest";
+    private static final String GOLDENS_DIR = "goldens";
+    /** Fixed, so that the goldens don't depend on the screen of the device */
+    private static final int WIDTH = 480;
+    /** The draw time of a frame is the best of this many draws */
+    private static final int TIMED_DRAWS = 5;
+
+    private static final int STYLE_DEFAULT = 0;
+    private static final int STYLE_IN_THEME = 1;
+    private static final int STYLE_IN_LAYOUT = 2;
+    private static final int STYLE_BUTTONS_IN_LANDSCAPE_PORTRAIT = 3;
+    private static final int STYLE_BUTTONS_IN_LANDSCAPE_LANDSCAPE = 4;
+    private static final String[] STYLE_NAMES = {
+        "default", "theme", "layout", "landscape_buttons_port", "landscape_buttons_land"
+    };
+    /** null keeps the template of the style */
+    private static final String[] TEMPLATES = { null, "#i / #N", "#i" };
+    private static final int[] PAGE_COUNTS = { 1, 20, 10000000 };
+    private static final float[] OFFSETS = { 0, 0.25f, 0.5f, 0.75f };
+
+    private final List<String> mFailures = new ArrayList<String>();
+    private final List<String> mRecorded = new ArrayList<String>();
+    private PrintWriter mTimings;
+    private File mOutputDir;
+
+    public GoldenImageTest() {
+        super(BasicUsageActivity.class);
+    }
+
+    public void testRenderingMatchesGoldens() throws IOException {
+        getActivity();
+        final File filesDir = getInstrumentation().getTargetContext().getExternalFilesDir(null);
+        assertNotNull("The external storage is not mounted", filesDir);
+        mOutputDir = new File(filesDir, GOLDENS_DIR);
+        if (!mOutputDir.isDirectory() && !mOutputDir.mkdirs()) {
+            fail("Cannot create " + mOutputDir);
+        }
+        mTimings = new PrintWriter(new File(mOutputDir, "timings.csv"));
+        mTimings.println("frame,nanos");
+        try {
+            for (int style = 0; style < STYLE_NAMES.length; ++style) {
+                for (int template = 0; template < TEMPLATES.length; ++template) {
+                    for (int pageCount : PAGE_COUNTS) {
+                        for (float offset : OFFSETS) {
+                            // There is nothing to swipe to with a single page
+                            if (pageCount > 1 || offset == 0) {
+                                checkFrame(style, template, pageCount, offset);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            mTimings.close();
+        }
+        if (!mRecorded.isEmpty()) {
+            Log.i(TAG, "Recorded " + mRecorded.size() + " goldens in " + mOutputDir + ": " + mRecorded);
+        }
+        if (!mFailures.isEmpty()) {
+            fail(mFailures.size() + " frames don't match their goldens (see " + mOutputDir + "): " + mFailures);
+        }
+    }
+
+    private void checkFrame(final int style, final int template, final int pageCount, final float offset) throws IOException {
+        final String name = STYLE_NAMES[style] + "-t" + template + "-n" + pageCount + "-o" + (int) (offset * 100);
+        // The page before the middle one, so that the swipe goes towards it
+        final int page = Math.max(0, pageCount / 2 - 1);
+        final NumericPageIndicator[] indicator = new NumericPageIndicator[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                indicator[0] = createIndicator(style);
+                if (TEMPLATES[template] != null) {
+                    indicator[0].setTextTemplate(TEMPLATES[template]);
+                }
+                final ViewPager pager = new ViewPager(getActivity());
+                pager.setAdapter(new MyPagerAdapter(pageCount));
+                pager.setCurrentItem(page, false);
+                indicator[0].setViewPager(pager);
+                // Attached and shown, so that the indicator is not suspended
+                final FrameLayout host = new FrameLayout(getActivity());
+                host.addView(indicator[0], new FrameLayout.LayoutParams(WIDTH, ViewGroup.LayoutParams.WRAP_CONTENT));
+                getActivity().setContentView(host);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+
+        final Bitmap[] frame = new Bitmap[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final NumericPageIndicator view = indicator[0];
+                view.onPageScrolled(page, offset, (int) (offset * WIDTH));
+                frame[0] = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+                final Canvas canvas = new Canvas(frame[0]);
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < TIMED_DRAWS; ++i) {
+                    canvas.drawColor(Color.BLACK);
+                    final long start = System.nanoTime();
+                    view.draw(canvas);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                mTimings.println(name + "," + best);
+            }
+        });
+
+        final Bitmap golden = loadGolden(name);
+        if (golden == null) {
+            writeFrame(frame[0], name + ".png");
+            if (GoldenImageTestRunner.sRecordGoldens) {
+                mRecorded.add(name);
+            } else {
+                mFailures.add(name + " (no golden)");
+            }
+        } else {
+            final int differentPixels = countDifferentPixels(golden, frame[0]);
+            if (differentPixels != 0) {
+                writeFrame(frame[0], name + "-actual.png");
+                mFailures.add(name + " (" + differentPixels + " pixels)");
+            }
+            golden.recycle();
+        }
+        frame[0].recycle();
+    }
+
+    private NumericPageIndicator createIndicator(int style) {
+        final Context context = getActivity();
+        switch (style) {
+        case STYLE_IN_THEME:
+            return new NumericPageIndicator(new ContextThemeWrapper(context, R.style.StyledNumericPageIndicator));
+        case STYLE_IN_LAYOUT:
+            final ViewGroup layout = (ViewGroup) LayoutInflater.from(context).inflate(R.layout.activity_styling_in_layout, null);
+            final NumericPageIndicator indicator = (NumericPageIndicator) layout.findViewById(R.id.pageIndicator);
+            layout.removeView(indicator);
+            return indicator;
+        case STYLE_BUTTONS_IN_LANDSCAPE_PORTRAIT:
+        case STYLE_BUTTONS_IN_LANDSCAPE_LANDSCAPE:
+            // The style shows the buttons depending on the orientation; they are set
+            // explicitly so that the frames don't depend on the one of the device
+            final boolean landscape = style == STYLE_BUTTONS_IN_LANDSCAPE_LANDSCAPE;
+            final NumericPageIndicator result = new NumericPageIndicator(new ContextThemeWrapper(context, R.style.StyledNumericPageIndicator_ButtonsInLandscape));
+            result.setShowChangePageButtons(landscape);
+            result.setShowStartEndButtons(landscape);
+            return result;
+        default:
+            return new NumericPageIndicator(context);
+        }
+    }
+
+    /**
+     * Returns null if there is no golden with the given name
+     */
+    private Bitmap loadGolden(String name) throws IOException {
+        final InputStream in;
+        try {
+            in = getInstrumentation().getContext().getAssets().open(GOLDENS_DIR + "/" + name + ".png");
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int countDifferentPixels(Bitmap expected, Bitmap actual) {
+        final int width = expected.getWidth();
+        final int height = expected.getHeight();
+        if (width != actual.getWidth() || height != actual.getHeight()) {
+            return Math.max(width * height, actual.getWidth() * actual.getHeight());
+        }
+        final int[] expectedPixels = new int[width * height];
+        final int[] actualPixels = new int[width * height];
+        expected.getPixels(expectedPixels, 0, width, 0, 0, width, height);
+        actual.getPixels(actualPixels, 0, width, 0, 0, width, height);
+        int result = 0;
+        for (int i = 0; i < expectedPixels.length; ++i) {
+            if (expectedPixels[i] != actualPixels[i]) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    private void writeFrame(Bitmap frame, String fileName) throws IOException {
+        final OutputStream out = new FileOutputStream(new File(mOutputDir, fileName));
+        try {
+            frame.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+    }
+}
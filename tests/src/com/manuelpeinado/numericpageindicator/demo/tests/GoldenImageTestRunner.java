@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2013 Manuel Peinado
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manuelpeinado.numericpageindicator.demo.tests;
+
+import android.os.Bundle;
+import android.test.InstrumentationTestRunner;
+
+/**
+ * Test runner that reads the options of {@link GoldenImageTest}. Pass
+ * {@code -e recordGoldens true} to {@code am instrument} to write the missing golden
+ * images instead of failing.
+ */
+public class GoldenImageTestRunner extends InstrumentationTestRunner {
+    static boolean sRecordGoldens;
+
+    @Override
+    public void onCreate(Bundle arguments) {
+        sRecordGoldens = arguments != null && Boolean.parseBoolean(arguments.getString("recordGoldens"));
+        super.onCreate(arguments);
+    }
+}